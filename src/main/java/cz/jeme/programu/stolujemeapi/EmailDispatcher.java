@@ -0,0 +1,170 @@
+package cz.jeme.programu.stolujemeapi;
+
+import cz.jeme.programu.stolujemeapi.db.email.EmailDao;
+import cz.jeme.programu.stolujemeapi.db.email.EmailSkeleton;
+import cz.jeme.programu.stolujemeapi.db.email.OutboxEmail;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// sends the emails queued in the outbox in batches, every batch is sent over a single smtp connection
+@Component
+public final class EmailDispatcher {
+    private final @NotNull JavaMailSender emailSender;
+    private final @NotNull EmailDao emailDao = EmailDao.INSTANCE;
+    private final @NotNull String from = "Stolujeme <%s>".formatted(EnvVar.EMAIL_USERNAME.require());
+    private final int batchSize = EnvVar.EMAIL_BATCH_SIZE.getInt(50);
+    private final int maxAttempts = EnvVar.EMAIL_MAX_ATTEMPTS.getInt(8);
+    private final @NotNull Duration period = EnvVar.EMAIL_DISPATCH_PERIOD.getDuration(Duration.ofSeconds(10));
+    private final @NotNull Duration backoff = EnvVar.EMAIL_RETRY_BACKOFF.getDuration(Duration.ofSeconds(30));
+    private final @NotNull Duration maxBackoff = Duration.ofHours(1);
+    // an email not reported back within this time is picked up again, e.g. after a crash
+    private final @NotNull Duration lease = Duration.ofMinutes(5);
+    private final @NotNull AtomicBoolean woken = new AtomicBoolean();
+    private volatile boolean started;
+    private final @NotNull LongAdder sent = new LongAdder();
+    private final @NotNull LongAdder failed = new LongAdder();
+    private final @NotNull ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "email-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final @NotNull Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Autowired
+    EmailDispatcher(final @NotNull JavaMailSender emailSender) {
+        this.emailSender = emailSender;
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Email batch size must be positive!");
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("Email max attempts must be positive!");
+    }
+
+    // the database must be initialized and migrated, emails queued before a restart are sent right away
+    public void start() {
+        if (started) return;
+        started = true;
+        final long millis = period.toMillis();
+        dispatcher.scheduleWithFixedDelay(this::dispatch, 0, millis, TimeUnit.MILLISECONDS);
+    }
+
+    // the email is sent once the outbox row is committed, the caller does not wait for smtp
+    public @NotNull OutboxEmail enqueue(final @NotNull EmailSkeleton skeleton) {
+        final OutboxEmail email = emailDao.insertEmail(skeleton);
+        wake();
+        return email;
+    }
+
+    // dispatch right away instead of at the next period, wakes coalesce while a dispatch is pending
+    public void wake() {
+        if (started && woken.compareAndSet(false, true)) dispatcher.execute(this::dispatch);
+    }
+
+    void dispatch() {
+        woken.set(false);
+        try {
+            List<OutboxEmail> batch;
+            do {
+                batch = emailDao.claimEmails(batchSize, lease);
+                if (!batch.isEmpty()) send(batch);
+            } while (batch.size() == batchSize);
+        } catch (final RuntimeException e) {
+            logger.error("Could not dispatch emails!", e);
+        }
+    }
+
+    private void send(final @NotNull List<OutboxEmail> batch) {
+        final long start = System.nanoTime();
+        final Map<SimpleMailMessage, OutboxEmail> messages = new IdentityHashMap<>();
+        for (final OutboxEmail email : batch) {
+            final SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom(from);
+            message.setTo(email.recipient());
+            message.setSubject(email.subject());
+            message.setText(email.text());
+            messages.put(message, email);
+        }
+        final Map<OutboxEmail, Exception> failures = new HashMap<>();
+        try {
+            emailSender.send(messages.keySet().toArray(SimpleMailMessage[]::new));
+        } catch (final MailSendException e) {
+            // only the listed messages failed, the rest went through the same connection
+            final Map<Object, Exception> failedMessages = e.getFailedMessages();
+            if (failedMessages.isEmpty()) {
+                for (final OutboxEmail email : batch) failures.put(email, e);
+            } else {
+                failedMessages.forEach((message, exception) -> {
+                    final OutboxEmail email = messages.get(message);
+                    if (email != null) failures.put(email, exception);
+                });
+            }
+        } catch (final MailException e) {
+            // e.g. authentication or connection failures, nothing was sent
+            for (final OutboxEmail email : batch) failures.put(email, e);
+        }
+
+        final List<OutboxEmail> delivered = new ArrayList<>();
+        for (final OutboxEmail email : batch) {
+            final Exception exception = failures.get(email);
+            if (exception == null) {
+                delivered.add(email);
+                continue;
+            }
+            final int attempts = email.attempts() + 1;
+            final LocalDateTime nextAttemptTime = attempts >= maxAttempts
+                    ? null
+                    : LocalDateTime.now().plus(backoff(attempts));
+            emailDao.markFailed(email, nextAttemptTime, String.valueOf(exception.getMessage()));
+            if (nextAttemptTime == null)
+                logger.error("Giving up on email {} to {} after {} attempts", email.id(), email.recipient(), attempts, exception);
+        }
+        emailDao.markSent(delivered);
+        sent.add(delivered.size());
+        failed.add(failures.size());
+        logger.info("Dispatched {} emails in {} ms ({} sent, {} failed)",
+                batch.size(),
+                (System.nanoTime() - start) / 1_000_000,
+                delivered.size(),
+                failures.size()
+        );
+    }
+
+    // exponential backoff: backoff, 2 * backoff, 4 * backoff... up to max backoff
+    private @NotNull Duration backoff(final int attempts) {
+        final Duration delay = backoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    public long sent() {
+        return sent.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "EmailDispatcher{" +
+               "sent=" + sent() +
+               ", failed=" + failed() +
+               ", batchSize=" + batchSize +
+               ", period=" + period +
+               '}';
+    }
+}
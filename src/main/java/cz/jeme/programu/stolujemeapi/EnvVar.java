@@ -3,6 +3,9 @@ package cz.jeme.programu.stolujemeapi;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.Objects;
 
 public enum EnvVar {
@@ -11,7 +14,43 @@ public enum EnvVar {
     DATABASE_URL,
     DATABASE_USER,
     DATABASE_PASSWORD,
-    PHOTO_DIR;
+    PHOTO_DIR,
+    DATABASE_POOL_MIN_SIZE(false),
+    DATABASE_POOL_MAX_SIZE(false),
+    DATABASE_POOL_IDLE_TIMEOUT(false), // ISO-8601 duration, e.g. PT10M
+    DATABASE_POOL_MAX_LIFETIME(false), // ISO-8601 duration
+    DATABASE_POOL_ACQUIRE_TIMEOUT(false), // ISO-8601 duration
+    DATABASE_STATEMENT_CACHE_SIZE(false), // prepared statements cached per connection
+    DATABASE_FETCH_SIZE(false), // rows fetched per round trip by streamed queries
+    MEAL_NAME_INDEX_SIZE(false), // meal names kept in memory for the menu job
+    MENU_API_URL(false),
+    MENU_JOB_PARALLELISM(false), // canteens ingested at the same time
+    MENU_JOB_CRON(false), // quartz cron expression, daily at noon by default
+    MENU_CAPTURE_DIR(false), // raw menu api responses are saved here when set
+    EMAIL_BATCH_SIZE(false), // emails sent over one smtp connection
+    EMAIL_MAX_ATTEMPTS(false),
+    EMAIL_DISPATCH_PERIOD(false), // ISO-8601 duration between outbox polls
+    EMAIL_RETRY_BACKOFF(false), // ISO-8601 duration before the first retry, doubled on every further one
+    PHOTO_ENCODER_THREADS(false), // imagemagick processes running at the same time
+    PHOTO_ENCODER_QUEUE_SIZE(false), // photos waiting for an encoder before uploads are rejected
+    PHOTO_ENCODER_TIMEOUT(false), // ISO-8601 duration
+    PHOTO_VARIANTS(false), // comma separated px dimensions every photo is encoded in
+    PHOTO_PROCESSOR_PERIOD(false), // ISO-8601 duration between resumes of pending uploads
+    SWEEPER_JOB_CRON(false), // quartz cron expression, hourly by default
+    SWEEPER_BATCH_SIZE(false), // rows deleted per statement
+    SWEEPER_GRACE(false), // ISO-8601 duration expired rows are kept for
+    HASH_ITERATIONS(false), // fixed password hashing iterations, calibrated at startup when not set
+    HASH_TARGET_TIME(false), // ISO-8601 duration a single password hash should take
+    HASH_THREADS(false), // password hashing threads, one per cpu core by default
+    HASH_QUEUE_SIZE(false), // password hashes waiting for a thread before requests are rejected
+    HASH_RETRY_AFTER(false), // ISO-8601 duration
+    HASH_REPORT_PERIOD(false), // ISO-8601 duration between logs of the password hashing load
+    SESSION_CACHE_ENABLED(false),
+    SESSION_CACHE_SIZE(false),
+    SESSION_CACHE_TTL(false), // ISO-8601 duration
+    SESSION_TOKENS_SIGNED(false), // stateless hmac signed session tokens instead of database lookups
+    SESSION_TOKEN_SECRET(false), // base64, at least 32 bytes, shared by all instances
+    SESSION_REVOCATION_SYNC(false); // ISO-8601 duration between log-out syncs from the database
 
     private final @Nullable String value;
     private final boolean required;
@@ -41,6 +80,46 @@ public enum EnvVar {
         return Objects.requireNonNull(value);
     }
 
+    public boolean getBoolean(final boolean fallback) {
+        if (value == null) return fallback;
+        return switch (value.toLowerCase()) {
+            case "true" -> true;
+            case "false" -> false;
+            default -> throw new IllegalArgumentException("Environment variable %s must be true or false!".formatted(name()));
+        };
+    }
+
+    public int getInt(final int fallback) {
+        if (value == null) return fallback;
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Environment variable %s must be an integer!".formatted(name()), e);
+        }
+    }
+
+    // comma separated integers
+    public int @NotNull [] getInts(final int @NotNull ... fallback) {
+        if (value == null) return fallback;
+        try {
+            return Arrays.stream(value.split(","))
+                    .map(String::strip)
+                    .mapToInt(Integer::parseInt)
+                    .toArray();
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Environment variable %s must be a comma separated list of integers!".formatted(name()), e);
+        }
+    }
+
+    public @NotNull Duration getDuration(final @NotNull Duration fallback) {
+        if (value == null) return fallback;
+        try {
+            return Duration.parse(value);
+        } catch (final DateTimeParseException e) {
+            throw new IllegalArgumentException("Environment variable %s must be an ISO-8601 duration!".formatted(name()), e);
+        }
+    }
+
 
     @Override
     public @NotNull String toString() {
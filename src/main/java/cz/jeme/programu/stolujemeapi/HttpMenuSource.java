@@ -0,0 +1,80 @@
+package cz.jeme.programu.stolujemeapi;
+
+import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import cz.jeme.programu.stolujemeapi.rest.ApiUtils;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+
+// reads menus from the menu api, optionally capturing the raw responses for a later replay
+@ApiStatus.Internal
+final class HttpMenuSource implements MenuSource {
+    static final @NotNull DateTimeFormatter CAPTURE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final @NotNull RestTemplate template = new RestTemplate();
+    private final @Nullable Path captureDir;
+
+    HttpMenuSource(final @Nullable Path captureDir) {
+        this.captureDir = captureDir;
+    }
+
+    @Override
+    public long read(final @NotNull Canteen canteen, final @NotNull MenuReader.DayHandler handler) {
+        final long start = System.nanoTime();
+        // days are processed as they are parsed from the response, the whole payload is never held in memory
+        return Objects.requireNonNull(template.execute(
+                MenuJob.URL,
+                HttpMethod.POST,
+                request -> {
+                    // the same content type as a plain string body
+                    request.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+                    request.getBody().write(ApiUtils.jsonToString(new MenuJob.MenuRequest(canteen.number()))
+                            .getBytes(StandardCharsets.UTF_8));
+                },
+                response -> {
+                    // the request until the response headers arrived
+                    final long requestNanos = System.nanoTime() - start;
+                    if (captureDir == null) {
+                        final TimedInputStream body = new TimedInputStream(response.getBody());
+                        MenuReader.read(body, handler);
+                        return requestNanos + body.nanos();
+                    }
+                    final long captureStart = System.nanoTime();
+                    final Path file = HttpMenuSource.capture(captureDir, canteen, response.getBody());
+                    final long captureNanos = System.nanoTime() - captureStart;
+                    try (final TimedInputStream input = new TimedInputStream(Files.newInputStream(file))) {
+                        MenuReader.read(input, handler);
+                        return requestNanos + captureNanos + input.nanos();
+                    }
+                }
+        ));
+    }
+
+    // captures are stored as <capture dir>/<canteen number>/<timestamp>.json
+    private static @NotNull Path capture(final @NotNull Path captureDir,
+                                         final @NotNull Canteen canteen,
+                                         final @NotNull InputStream body) throws IOException {
+        final Path dir = Files.createDirectories(captureDir.resolve(canteen.number()));
+        final Path file = dir.resolve(HttpMenuSource.CAPTURE_FORMATTER.format(LocalDateTime.now()) + ".json");
+        Files.copy(body, file);
+        return file;
+    }
+
+    @Override
+    public @NotNull LocalDate today() {
+        return LocalDate.now();
+    }
+}
@@ -1,101 +1,291 @@
 package cz.jeme.programu.stolujemeapi;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.JsonNode;
 import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import cz.jeme.programu.stolujemeapi.canteen.MealData;
 import cz.jeme.programu.stolujemeapi.db.meal.*;
-import cz.jeme.programu.stolujemeapi.rest.ApiUtils;
 import cz.jeme.programu.stolujemeapi.rest.Request;
 import org.jetbrains.annotations.NotNull;
+import org.quartz.DisallowConcurrentExecution;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+// the startup run and a short cron could otherwise overlap and write the same menu days twice
+@DisallowConcurrentExecution
 public final class MenuJob implements Job {
     public static final @NotNull URI URL;
     public static final @NotNull DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
 
     static {
         try {
-            URL = new URI("https://app.strava.cz/api/jidelnicky");
+            URL = new URI(Objects.requireNonNullElse(EnvVar.MENU_API_URL.get(), "https://app.strava.cz/api/jidelnicky"));
         } catch (final URISyntaxException e) {
             throw new RuntimeException("Could not create menu URI!", e);
         }
     }
 
-    private final @NotNull RestTemplate template = new RestTemplate();
+    // resolving and creating meals goes through the meal name index shared by all canteens, a name is only created once per canteen
+    private static final @NotNull Object MEAL_LOCK = new Object();
+
+    private final @NotNull MenuSource source;
     private final @NotNull MealDao mealDao = MealDao.INSTANCE;
     private final @NotNull Logger logger = LoggerFactory.getLogger(MenuJob.class);
+    private final int parallelism = EnvVar.MENU_JOB_PARALLELISM.getInt(4);
+    private final @NotNull LongAdder daysSkipped = new LongAdder();
+    private final @NotNull LongAdder daysChanged = new LongAdder();
+    private final @NotNull LongAdder rowsTouched = new LongAdder();
+    // time spent in each phase, summed over all canteens
+    private final @NotNull LongAdder fetchNanos = new LongAdder();
+    private final @NotNull LongAdder parseNanos = new LongAdder();
+    private final @NotNull LongAdder resolveNanos = new LongAdder();
+    private final @NotNull LongAdder writeNanos = new LongAdder();
+
+    // quartz needs a public no-args constructor
+    public MenuJob() {
+        this(new HttpMenuSource(EnvVar.MENU_CAPTURE_DIR.get() == null ? null : Path.of(EnvVar.MENU_CAPTURE_DIR.get())));
+    }
+
+    MenuJob(final @NotNull MenuSource source) {
+        this.source = source;
+    }
 
     @Override
     public void execute(final @NotNull JobExecutionContext context) {
+        run();
+    }
+
+    void run() {
+        final long start = System.nanoTime();
         logger.info("Menu job started");
-        for (final Canteen canteen : Canteen.canteens()) {
-            logger.info("Getting menu data for {}", canteen);
-            final String result = Objects.requireNonNull(template.postForObject(
-                    MenuJob.URL,
-                    ApiUtils.jsonToString(new MenuRequest(canteen.number())),
-                    String.class
-            ), "Menu api post did not return anything!");
-            processMenu(canteen, ApiUtils.stringToJson(result).get(0));
+        mealDao.warmMealNameIndex();
+        final List<Canteen> canteens = List.copyOf(Canteen.canteens());
+        final int threads = Math.max(1, Math.min(parallelism, canteens.size()));
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "menu-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        int failed = 0;
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (final Canteen canteen : canteens)
+                futures.add(executor.submit(() -> ingest(canteen)));
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (final ExecutionException e) {
+                    // one canteen failing must not stop the others
+                    failed++;
+                    logger.error("Could not update menu of {}!", canteens.get(i), e.getCause());
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Menu job was interrupted!");
+        } finally {
+            executor.shutdownNow();
         }
+        logger.info("Menu job finished in {} ms ({} canteens, {} failed, {} threads)",
+                (System.nanoTime() - start) / 1_000_000,
+                canteens.size(),
+                failed,
+                threads
+        );
+        logger.info("Menu days: {} skipped, {} changed, {} rows touched, {}",
+                daysSkipped.sum(),
+                daysChanged.sum(),
+                rowsTouched.sum(),
+                mealDao.mealNameIndex()
+        );
+        final long days = daysSkipped.sum() + daysChanged.sum();
+        final long elapsed = System.nanoTime() - start;
+        logger.info("Menu phases: fetch {} ms, parse {} ms, name resolution {} ms, diff write {} ms ({} days, {} days/s)",
+                fetchNanos.sum() / 1_000_000,
+                parseNanos.sum() / 1_000_000,
+                resolveNanos.sum() / 1_000_000,
+                writeNanos.sum() / 1_000_000,
+                days,
+                elapsed == 0 ? 0 : days * 1_000_000_000L / elapsed
+        );
     }
 
-    private void processMenu(final @NotNull Canteen canteen, final @NotNull JsonNode tables) {
-        final List<MenuEntrySkeleton> dayEntries = new ArrayList<>();
-        final LocalDate today = LocalDate.now();
-        for (final JsonNode day : tables) {
-            dayEntries.clear();
-            final LocalDate date = LocalDate.parse(
-                    day.get(0).get("datum").asText(),
-                    MenuJob.DATE_FORMATTER
-            );
-            if (date.isBefore(today)) continue;
-            for (final JsonNode mealData : day) {
-                final String name = mealData.get("nazev").asText();
+    long daysSkipped() {
+        return daysSkipped.sum();
+    }
+
+    long daysChanged() {
+        return daysChanged.sum();
+    }
+
+    long rowsTouched() {
+        return rowsTouched.sum();
+    }
+
+    long fetchNanos() {
+        return fetchNanos.sum();
+    }
+
+    long parseNanos() {
+        return parseNanos.sum();
+    }
+
+    long resolveNanos() {
+        return resolveNanos.sum();
+    }
+
+    long writeNanos() {
+        return writeNanos.sum();
+    }
+
+    private void ingest(final @NotNull Canteen canteen) {
+        final long start = System.nanoTime();
+        logger.info("Getting menu data for {}", canteen);
+        final CanteenIngestion ingestion = new CanteenIngestion(canteen);
+        final long fetched;
+        try {
+            fetched = source.read(canteen, ingestion::processDay);
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not read menu of %s!".formatted(canteen), e);
+        }
+        // whatever was neither spent getting the menu nor processing its days was spent parsing it
+        fetchNanos.add(fetched);
+        parseNanos.add(System.nanoTime() - start - fetched - ingestion.processNanos);
+        resolveNanos.add(ingestion.resolveNanos);
+        writeNanos.add(ingestion.writeNanos);
+        logger.info("Updated menu of {} in {} ms ({} days skipped, {} days changed, {} rows touched)",
+                canteen,
+                (System.nanoTime() - start) / 1_000_000,
+                ingestion.daysSkipped,
+                ingestion.daysChanged,
+                ingestion.rowsTouched
+        );
+    }
+
+    // sha-256 over the sorted valid meals of a day, independent of their order in the response
+    static @NotNull String fingerprint(final @NotNull List<MealData> meals) {
+        final List<MealData> sorted = new ArrayList<>(meals);
+        sorted.sort(Comparator.comparing(MealData::type).thenComparing(MealData::name));
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException("Could not obtain message digest!", e);
+        }
+        for (final MealData meal : sorted)
+            digest.update((meal.type() + '\t' + meal.name() + '\n').getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private final class CanteenIngestion {
+        private final @NotNull Canteen canteen;
+        private final @NotNull LocalDate today = source.today();
+        private final @NotNull Map<LocalDate, String> fingerprints;
+        private final @NotNull List<MenuEntrySkeleton> dayEntries = new ArrayList<>();
+        private int daysSkipped = 0;
+        private int daysChanged = 0;
+        private int rowsTouched = 0;
+        private long processNanos = 0;
+        private long resolveNanos = 0;
+        private long writeNanos = 0;
+
+        private CanteenIngestion(final @NotNull Canteen canteen) {
+            this.canteen = canteen;
+            fingerprints = mealDao.menuFingerprints(canteen, today);
+        }
+
+        private void processDay(final @NotNull List<MealData> meals) {
+            final long start = System.nanoTime();
+            try {
+                ingestDay(meals);
+            } finally {
+                processNanos += System.nanoTime() - start;
+            }
+        }
+
+        private void ingestDay(final @NotNull List<MealData> meals) {
+            final LocalDate date = LocalDate.parse(meals.get(0).date(), MenuJob.DATE_FORMATTER);
+            if (date.isBefore(today)) return;
+            final List<MealData> valid = new ArrayList<>();
+            for (final MealData mealData : meals) {
                 if (!canteen.mealValid(mealData))
                     continue; // the canteen has dementia and this meal is just a placeholder
-                final String type = mealData.get("druh").asText();
+                if (mealData.type() == null) {
+                    logger.warn("Skipping meal \"{}\" of {} on {}, it has no type", mealData.name(), canteen, date);
+                    continue;
+                }
+                valid.add(mealData);
+            }
+            final String fingerprint = MenuJob.fingerprint(valid);
+            if (fingerprint.equals(fingerprints.get(date))) {
+                daysSkipped++;
+                MenuJob.this.daysSkipped.increment();
+                return;
+            }
+            dayEntries.clear();
+            final long resolveStart = System.nanoTime();
+            for (final MealData mealData : valid) {
+                final String type = Objects.requireNonNull(mealData.type());
                 final Meal.Course course = canteen.translateCourse(type);
                 final Integer courseNumber = course == Meal.Course.MAIN ? Integer.parseInt(type) : null;
-                // get meal
-                final Meal meal;
-                final MealName mealName;
-                if (mealDao.existsMealName(name)) {
-                    mealName = mealDao.mealNameByName(name)
-                            .orElseThrow(() -> new RuntimeException("Meal name exists, but was not returned!"));
-                    meal = mealDao.mealById(mealName.mealId())
-                            .orElseThrow(() -> new RuntimeException("Meal id exists, but meal was not returned!"));
-                } else {
-                    meal = mealDao.insertMeal(new MealSkeleton.Builder()
-                            .canteen(canteen)
-                            .course(course)
-                            .build()
-                    );
-                    mealName = mealDao.insertMealName(new MealNameSkeleton(
-                            meal.id(),
-                            name
-                    ));
-                }
+                final MealNameIndex.NamedMeal named = resolveMeal(canteen, course, mealData.name());
                 dayEntries.add(new MenuEntrySkeleton.Builder()
                         .date(date)
-                        .mealId(meal.id())
-                        .mealNameId(mealName.id())
+                        .mealId(named.meal().id())
+                        .mealNameId(named.mealName().id())
                         .courseNumber(courseNumber)
                         .build()
                 );
             }
-            mealDao.updateMenuDay(date, dayEntries);
+            final long writeStart = System.nanoTime();
+            resolveNanos += writeStart - resolveStart;
+            final int rows = mealDao.updateMenuDay(canteen, date, dayEntries, fingerprint);
+            writeNanos += System.nanoTime() - writeStart;
+            // replayed menus may contain the same day more than once
+            fingerprints.put(date, fingerprint);
+            daysChanged++;
+            rowsTouched += rows;
+            MenuJob.this.daysChanged.increment();
+            MenuJob.this.rowsTouched.add(rows);
+        }
+    }
+
+    private @NotNull MealNameIndex.NamedMeal resolveMeal(final @NotNull Canteen canteen,
+                                                        final @NotNull Meal.Course course,
+                                                        final @NotNull String name) {
+        synchronized (MenuJob.MEAL_LOCK) {
+            final MealNameIndex.NamedMeal named = mealDao.namedMealByName(canteen, name).orElse(null);
+            if (named != null) return named;
+            final Meal meal = mealDao.insertMeal(new MealSkeleton.Builder()
+                    .canteen(canteen)
+                    .course(course)
+                    .build()
+            );
+            final MealName mealName = mealDao.insertMealName(new MealNameSkeleton(
+                    meal.id(),
+                    canteen,
+                    name
+            ));
+            return new MealNameIndex.NamedMeal(mealName, meal);
         }
     }
 
@@ -0,0 +1,85 @@
+package cz.jeme.programu.stolujemeapi;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import cz.jeme.programu.stolujemeapi.canteen.MealData;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// reads the menu api response incrementally, only a single day is held in memory at a time
+@ApiStatus.Internal
+final class MenuReader {
+    private static final @NotNull JsonFactory FACTORY = new JsonFactory();
+
+    private MenuReader() {
+        throw new AssertionError();
+    }
+
+    // the response is an array whose first element holds the days, either as an object of tables or as an array
+    static void read(final @NotNull InputStream input, final @NotNull DayHandler handler) throws IOException {
+        try (final JsonParser parser = MenuReader.FACTORY.createParser(input)) {
+            MenuReader.expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            final JsonToken tables = parser.nextToken();
+            if (tables == JsonToken.END_ARRAY) return;
+            if (tables == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    MenuReader.expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+                    MenuReader.readDay(parser, handler);
+                }
+            } else {
+                MenuReader.expect(parser, tables, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_ARRAY) MenuReader.readDay(parser, handler);
+            }
+        }
+    }
+
+    private static void readDay(final @NotNull JsonParser parser, final @NotNull DayHandler handler) throws IOException {
+        final List<MealData> meals = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            MenuReader.expect(parser, token, JsonToken.START_OBJECT);
+            meals.add(MenuReader.readMeal(parser));
+        }
+        if (!meals.isEmpty()) handler.handle(meals);
+    }
+
+    private static @NotNull MealData readMeal(final @NotNull JsonParser parser) throws IOException {
+        String date = null;
+        String name = null;
+        String type = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "datum" -> date = parser.getValueAsString();
+                case "nazev" -> name = parser.getValueAsString();
+                case "druh" -> type = parser.getValueAsString();
+                default -> parser.skipChildren();
+            }
+        }
+        // the type is left to the menu job, placeholder meals may not have one
+        if (date == null || name == null)
+            throw new JsonParseException(parser, "Menu meal is missing its date or name!");
+        return new MealData(date, name, type);
+    }
+
+    private static void expect(final @NotNull JsonParser parser,
+                               final @Nullable JsonToken actual,
+                               final @NotNull JsonToken expected) throws JsonParseException {
+        if (actual != expected)
+            throw new JsonParseException(parser, "Expected %s in menu, got %s!".formatted(expected, actual));
+    }
+
+    @FunctionalInterface
+    interface DayHandler {
+        void handle(final @NotNull List<MealData> meals);
+    }
+}
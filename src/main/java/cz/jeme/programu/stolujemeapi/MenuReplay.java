@@ -0,0 +1,91 @@
+package cz.jeme.programu.stolujemeapi;
+
+import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import cz.jeme.programu.stolujemeapi.db.Database;
+import cz.jeme.programu.stolujemeapi.db.Migrator;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.time.Period;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// replays captured menus against the configured database and reports the menu job throughput
+// usage: MenuReplay <capture dir> [weeks], only the captures of the last weeks before the latest capture of every canteen are replayed
+// the replay writes menus, so it only runs against a database on this machine, e.g. an embedded one
+@ApiStatus.Internal
+public final class MenuReplay {
+    private static final @NotNull Logger LOGGER = LoggerFactory.getLogger(MenuReplay.class);
+    // jdbc:mariadb://host1:port,host2/database
+    private static final @NotNull Pattern JDBC_HOSTS = Pattern.compile("jdbc:(?:mariadb|mysql)://([^/?]*)");
+    // host, host:port, [ipv6] or [ipv6]:port
+    private static final @NotNull Pattern HOST = Pattern.compile("\\[?([^\\[\\]]+?)]?(?::\\d+)?");
+
+    private MenuReplay() {
+        throw new AssertionError();
+    }
+
+    public static void main(final String @NotNull [] args) {
+        if (args.length < 1 || args.length > 2)
+            throw new IllegalArgumentException("Usage: MenuReplay <capture dir> [weeks]");
+        final Path captureDir = Path.of(args[0]);
+        // all captures by default
+        final Period window = args.length == 2 ? Period.ofWeeks(Integer.parseInt(args[1])) : null;
+
+        EnvVar.class.getEnumConstants(); // load environmental variables
+        final String url = EnvVar.DATABASE_URL.require();
+        if (!MenuReplay.local(url))
+            throw new IllegalStateException("Refusing to replay menus into %s, the database must be local!".formatted(url));
+        Database.INSTANCE.init();
+        try {
+            Migrator.INSTANCE.migrate();
+            Canteen.init();
+
+            final MenuJob job = new MenuJob(new ReplayMenuSource(captureDir, window));
+            final long start = System.nanoTime();
+            job.run();
+            final long elapsed = System.nanoTime() - start;
+            final long days = job.daysSkipped() + job.daysChanged();
+            MenuReplay.LOGGER.info("Replayed {} days in {} ms: {} days/s, {} rows/s",
+                    days,
+                    elapsed / 1_000_000,
+                    elapsed == 0 ? 0 : days * 1_000_000_000L / elapsed,
+                    elapsed == 0 ? 0 : job.rowsTouched() * 1_000_000_000L / elapsed
+            );
+            // skipped days are never resolved nor written
+            MenuReplay.LOGGER.info("Mean latency per day: fetch {} µs, parse {} µs, per changed day: name resolution {} µs, diff write {} µs",
+                    MenuReplay.perDay(job.fetchNanos(), days),
+                    MenuReplay.perDay(job.parseNanos(), days),
+                    MenuReplay.perDay(job.resolveNanos(), job.daysChanged()),
+                    MenuReplay.perDay(job.writeNanos(), job.daysChanged())
+            );
+        } finally {
+            Database.INSTANCE.close();
+        }
+    }
+
+    // every host of the jdbc url must be a loopback address, anything unrecognized is not local
+    private static boolean local(final @NotNull String url) {
+        final Matcher matcher = MenuReplay.JDBC_HOSTS.matcher(url);
+        if (!matcher.lookingAt() || matcher.group(1).isEmpty()) return false;
+        for (final String address : matcher.group(1).split(",")) {
+            final Matcher hostMatcher = MenuReplay.HOST.matcher(address.strip());
+            if (!hostMatcher.matches()) return false;
+            try {
+                if (!InetAddress.getByName(hostMatcher.group(1)).isLoopbackAddress()) return false;
+            } catch (final UnknownHostException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long perDay(final long nanos, final long days) {
+        return days == 0 ? 0 : nanos / days / 1_000;
+    }
+}
@@ -0,0 +1,19 @@
+package cz.jeme.programu.stolujemeapi;
+
+import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+// where the menu job gets its menus from, either the live menu api or captured responses
+@ApiStatus.Internal
+interface MenuSource {
+    // feeds every day of every menu of the canteen to the handler
+    // returns the time spent getting the raw menu, requesting it and waiting for its bytes, but not parsing or handling it
+    long read(final @NotNull Canteen canteen, final @NotNull MenuReader.DayHandler handler) throws IOException;
+
+    // days before this date are not ingested
+    @NotNull LocalDate today();
+}
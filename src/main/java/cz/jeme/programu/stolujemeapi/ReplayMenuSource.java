@@ -0,0 +1,76 @@
+package cz.jeme.programu.stolujemeapi;
+
+import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.stream.Stream;
+
+// replays menus captured by the http menu source, oldest first
+@ApiStatus.Internal
+final class ReplayMenuSource implements MenuSource {
+    private final @NotNull Path captureDir;
+    private final @Nullable Period window;
+
+    // only the captures of every canteen taken within the window before its latest capture are replayed, all when null
+    ReplayMenuSource(final @NotNull Path captureDir, final @Nullable Period window) {
+        if (window != null && (window.isNegative() || window.isZero()))
+            throw new IllegalArgumentException("Replay window must be positive!");
+        this.captureDir = captureDir;
+        this.window = window;
+    }
+
+    @Override
+    public long read(final @NotNull Canteen canteen, final @NotNull MenuReader.DayHandler handler) throws IOException {
+        long fetchNanos = 0;
+        for (final Path file : captures(canteen)) {
+            try (final TimedInputStream input = new TimedInputStream(Files.newInputStream(file))) {
+                MenuReader.read(input, handler);
+                fetchNanos += input.nanos();
+            }
+        }
+        return fetchNanos;
+    }
+
+    // capture file names are timestamps, so their order is chronological
+    @NotNull List<Path> captures(final @NotNull Canteen canteen) throws IOException {
+        final Path dir = captureDir.resolve(canteen.number());
+        if (!Files.isDirectory(dir)) return List.of();
+        final List<Path> files;
+        try (final Stream<Path> stream = Files.list(dir)) {
+            files = stream
+                    .filter(file -> file.getFileName().toString().endsWith(".json"))
+                    .sorted()
+                    .toList();
+        }
+        if (window == null || files.isEmpty()) return files;
+        final LocalDateTime from = ReplayMenuSource.captureTime(files.get(files.size() - 1)).minus(window);
+        return files.stream()
+                .filter(file -> ReplayMenuSource.captureTime(file).isAfter(from))
+                .toList();
+    }
+
+    private static @NotNull LocalDateTime captureTime(final @NotNull Path file) {
+        final String name = file.getFileName().toString();
+        try {
+            return LocalDateTime.parse(name.substring(0, name.length() - ".json".length()), HttpMenuSource.CAPTURE_FORMATTER);
+        } catch (final DateTimeParseException e) {
+            throw new IllegalArgumentException("Capture %s is not named by its timestamp!".formatted(file), e);
+        }
+    }
+
+    // captured menus are in the past, all of their days are ingested
+    @Override
+    public @NotNull LocalDate today() {
+        return LocalDate.EPOCH;
+    }
+}
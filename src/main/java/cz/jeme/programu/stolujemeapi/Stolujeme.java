@@ -1,11 +1,12 @@
 package cz.jeme.programu.stolujemeapi;
 
 import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import cz.jeme.programu.stolujemeapi.db.CryptoUtils;
 import cz.jeme.programu.stolujemeapi.db.Database;
-import cz.jeme.programu.stolujemeapi.db.meal.MealDao;
-import cz.jeme.programu.stolujemeapi.db.photo.PhotoDao;
-import cz.jeme.programu.stolujemeapi.db.rating.RatingDao;
+import cz.jeme.programu.stolujemeapi.db.Migrator;
 import cz.jeme.programu.stolujemeapi.db.user.UserDao;
+import cz.jeme.programu.stolujemeapi.photo.PhotoProcessor;
+import cz.jeme.programu.stolujemeapi.rest.HashExecutor;
 import org.jetbrains.annotations.NotNull;
 import org.quartz.*;
 import org.quartz.impl.StdSchedulerFactory;
@@ -13,11 +14,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Objects;
 
 @SpringBootApplication
 public class Stolujeme {
@@ -31,33 +35,60 @@ public class Stolujeme {
 
     public static void main(final String @NotNull [] args) {
         EnvVar.class.getEnumConstants(); // load environmental variables
-        SpringApplication.run(Stolujeme.class, args); // start spring boot
+        // password hashing cost, before any request can hash a password
+        if (EnvVar.HASH_ITERATIONS.get() == null) {
+            CryptoUtils.calibrate(EnvVar.HASH_TARGET_TIME.getDuration(Duration.ofMillis(100)));
+        } else {
+            CryptoUtils.iterations(EnvVar.HASH_ITERATIONS.getInt(CryptoUtils.LEGACY_ITERATIONS));
+        }
+        final ApplicationContext context = SpringApplication.run(Stolujeme.class, args); // start spring boot
         Stolujeme.LOGO.forEach(Stolujeme.LOGGER::info); // STOLUJEME 😎
 
         // initialize database
         Database.INSTANCE.init();
-        // initialize data access objects
-        UserDao.INSTANCE.init();
-        MealDao.INSTANCE.init();
-        PhotoDao.INSTANCE.init();
-        RatingDao.INSTANCE.init();
+        Runtime.getRuntime().addShutdownHook(new Thread(Database.INSTANCE::close, "database-shutdown"));
+        // migrate database schema
+        Migrator.INSTANCE.migrate();
 
         // initialize canteens
         Canteen.init();
 
-        // menu job
+        // log-outs of signed sessions
+        UserDao.INSTANCE.startSessionRevocationSync();
+
+        // password hashing load
+        HashExecutor.INSTANCE.startReporting();
+
+        // photo uploads accepted before a restart
+        PhotoProcessor.INSTANCE.start();
+
+        // emails queued in the outbox
+        context.getBean(EmailDispatcher.class).start();
+
+        // scheduled jobs
         try {
             final SchedulerFactory factory = new StdSchedulerFactory();
             final Scheduler scheduler = factory.getScheduler();
             final JobDetail job = JobBuilder.newJob(MenuJob.class).build();
             final Trigger trigger = TriggerBuilder.newTrigger()
-                    .withSchedule(CronScheduleBuilder.dailyAtHourAndMinute(12, 0))
+                    .withSchedule(EnvVar.MENU_JOB_CRON.get() == null
+                            ? CronScheduleBuilder.dailyAtHourAndMinute(12, 0)
+                            : CronScheduleBuilder.cronSchedule(EnvVar.MENU_JOB_CRON.get()))
                     .build();
             scheduler.scheduleJob(job, trigger);
             scheduler.triggerJob(job.getKey()); // run the job at the start
+
+            // sweeper job
+            final JobDetail sweeper = JobBuilder.newJob(SweeperJob.class).build();
+            final Trigger sweeperTrigger = TriggerBuilder.newTrigger()
+                    .withSchedule(CronScheduleBuilder.cronSchedule(
+                            Objects.requireNonNullElse(EnvVar.SWEEPER_JOB_CRON.get(), "0 30 * * * ?") // hourly
+                    ))
+                    .build();
+            scheduler.scheduleJob(sweeper, sweeperTrigger);
             scheduler.start();
         } catch (final SchedulerException e) {
-            throw new RuntimeException("Could not create menu job!", e);
+            throw new RuntimeException("Could not create scheduled jobs!", e);
         }
     }
 
@@ -0,0 +1,98 @@
+package cz.jeme.programu.stolujemeapi;
+
+import cz.jeme.programu.stolujemeapi.db.email.EmailDao;
+import cz.jeme.programu.stolujemeapi.db.photo.PhotoDao;
+import cz.jeme.programu.stolujemeapi.db.user.UserDao;
+import cz.jeme.programu.stolujemeapi.rest.control.PhotoController;
+import org.jetbrains.annotations.NotNull;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// deletes expired sessions, registrations, finished outbox emails and photo uploads in small batches, so that no delete holds its locks for long
+// also deletes staged photo originals that no pending upload refers to
+@DisallowConcurrentExecution
+public final class SweeperJob implements Job {
+    private final @NotNull UserDao userDao = UserDao.INSTANCE;
+    private final @NotNull EmailDao emailDao = EmailDao.INSTANCE;
+    private final @NotNull PhotoDao photoDao = PhotoDao.INSTANCE;
+    private final @NotNull Logger logger = LoggerFactory.getLogger(SweeperJob.class);
+    private final int batchSize = EnvVar.SWEEPER_BATCH_SIZE.getInt(1_000);
+    // expired rows are kept for a while, so that an expired verification code is still reported as expired
+    private final @NotNull Duration grace = EnvVar.SWEEPER_GRACE.getDuration(Duration.ofDays(1));
+    private final @NotNull File stagingDir = new File(EnvVar.PHOTO_DIR.require(), PhotoController.STAGING_DIR_NAME);
+
+    @Override
+    public void execute(final @NotNull JobExecutionContext context) {
+        final long start = System.nanoTime();
+        final LocalDateTime cutoff = LocalDateTime.now().minus(grace);
+        final int sessions = sweep(limit -> userDao.deleteExpiredSessions(cutoff, limit));
+        final long sessionsTime = System.nanoTime() - start;
+        final int registrations = sweep(limit -> userDao.deleteExpiredRegistrations(cutoff, limit));
+        final long registrationsTime = System.nanoTime() - start - sessionsTime;
+        final int emails = sweep(limit -> emailDao.deleteFinishedEmails(cutoff, limit));
+        final long emailsTime = System.nanoTime() - start - sessionsTime - registrationsTime;
+        final int uploads = sweep(limit -> photoDao.deleteFinishedUploads(cutoff, limit));
+        final long uploadsTime = System.nanoTime() - start - sessionsTime - registrationsTime - emailsTime;
+        final int stagedFiles = sweepStagedFiles(cutoff);
+        final long stagedFilesTime = System.nanoTime() - start - sessionsTime - registrationsTime - emailsTime - uploadsTime;
+        logger.info("Sweeper purged {} sessions in {} ms, {} registrations in {} ms, {} emails in {} ms, {} photo uploads in {} ms and {} staged photo files in {} ms",
+                sessions,
+                sessionsTime / 1_000_000,
+                registrations,
+                registrationsTime / 1_000_000,
+                emails,
+                emailsTime / 1_000_000,
+                uploads,
+                uploadsTime / 1_000_000,
+                stagedFiles,
+                stagedFilesTime / 1_000_000
+        );
+    }
+
+    // a staged file is left over when the upload crashed before its row was inserted or its row is no longer pending,
+    // files newer than the cutoff are kept as their upload may still be inserting its row
+    private int sweepStagedFiles(final @NotNull LocalDateTime cutoff) {
+        final File[] files = stagingDir.listFiles();
+        if (files == null) return 0;
+        final long cutoffMillis = cutoff.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        // staged files are named after the upload uuid, the name alone matches them
+        final Set<String> pending = photoDao.pendingStagedFiles().stream()
+                .map(File::getName)
+                .collect(Collectors.toSet());
+        int deleted = 0;
+        for (final File file : files) {
+            if (Thread.currentThread().isInterrupted()) break;
+            if (!file.isFile() || file.lastModified() >= cutoffMillis || pending.contains(file.getName())) continue;
+            if (file.delete()) deleted++;
+            else logger.warn("Could not delete staged photo file {}", file);
+        }
+        return deleted;
+    }
+
+    // every batch is its own statement, locks are released between them
+    private int sweep(final @NotNull BatchDelete delete) {
+        int total = 0;
+        int deleted;
+        do {
+            if (Thread.currentThread().isInterrupted()) break;
+            deleted = delete.delete(batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+        return total;
+    }
+
+    @FunctionalInterface
+    private interface BatchDelete {
+        int delete(final int limit);
+    }
+}
@@ -0,0 +1,52 @@
+package cz.jeme.programu.stolujemeapi;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// sums the time spent waiting for bytes, so that reading a menu can be told apart from parsing it
+@ApiStatus.Internal
+final class TimedInputStream extends FilterInputStream {
+    private long nanos = 0;
+
+    TimedInputStream(final @NotNull InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return super.read();
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public int read(final byte @NotNull [] b, final int off, final int len) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return super.read(b, off, len);
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return super.skip(n);
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    long nanos() {
+        return nanos;
+    }
+}
@@ -1,6 +1,5 @@
 package cz.jeme.programu.stolujemeapi.canteen;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import cz.jeme.programu.stolujemeapi.db.meal.Meal;
 import io.github.classgraph.ClassGraph;
 import io.github.classgraph.ScanResult;
@@ -77,7 +76,7 @@ public abstract class Canteen {
 
     public abstract boolean emailValid(final @NotNull String email);
 
-    public abstract boolean mealValid(final @NotNull JsonNode meal);
+    public abstract boolean mealValid(final @NotNull MealData meal);
 
     public abstract @NotNull Meal.Course translateCourse(final @NotNull String mealType);
 
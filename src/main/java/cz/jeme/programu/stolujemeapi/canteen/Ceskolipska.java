@@ -1,6 +1,5 @@
 package cz.jeme.programu.stolujemeapi.canteen;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import cz.jeme.programu.stolujemeapi.db.meal.Meal;
 import org.jetbrains.annotations.NotNull;
 
@@ -25,8 +24,8 @@ public final class Ceskolipska extends Canteen {
     }
 
     @Override
-    public boolean mealValid(final @NotNull JsonNode meal) {
-        return !fakeMeals.contains(meal.get("nazev").asText());
+    public boolean mealValid(final @NotNull MealData meal) {
+        return !fakeMeals.contains(meal.name());
     }
 
     @Override
@@ -0,0 +1,19 @@
+package cz.jeme.programu.stolujemeapi.canteen;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+// the fields of a menu api meal that the menu job and the canteens use
+// placeholder meals may come without a type, they are only told apart by their name
+public record MealData(
+        @NotNull String date,
+        @NotNull String name,
+        @Nullable String type
+) {
+    public MealData {
+        Objects.requireNonNull(date, "date");
+        Objects.requireNonNull(name, "name");
+    }
+}
@@ -0,0 +1,204 @@
+package cz.jeme.programu.stolujemeapi.db;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@ApiStatus.Internal
+final class ConnectionPool {
+    // connections used this recently are not validated again when borrowed
+    private static final long VALIDATION_BYPASS = Duration.ofMillis(500).toNanos();
+    private static final int VALIDATION_TIMEOUT = 5; // seconds
+
+    private final @NotNull ConnectionSupplier supplier;
+    private final @NotNull Settings settings;
+    // the most recently released connection is handed out first, so the cold ones can idle out
+    private final @NotNull BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final @NotNull Semaphore permits;
+    private final @NotNull AtomicInteger size = new AtomicInteger(); // all physical connections
+    private final @NotNull LongAdder statementHits = new LongAdder();
+    private final @NotNull LongAdder statementMisses = new LongAdder();
+    private final @NotNull ScheduledExecutorService housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "database-pool-housekeeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final @NotNull Logger logger = LoggerFactory.getLogger(getClass());
+    private volatile boolean closed = false;
+
+    ConnectionPool(final @NotNull ConnectionSupplier supplier, final @NotNull Settings settings) {
+        this.supplier = supplier;
+        this.settings = settings;
+        permits = new Semaphore(settings.maxSize(), true);
+    }
+
+    void start() {
+        fill();
+        final long period = settings.housekeepingPeriod().toMillis();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+        logger.info("Connection pool started (min {}, max {})", settings.minSize(), settings.maxSize());
+    }
+
+    @NotNull
+    Connection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed!");
+        try {
+            if (!permits.tryAcquire(settings.acquireTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                throw new SQLTimeoutException("Timed out waiting for a database connection! (%d ms, %d in use)"
+                        .formatted(settings.acquireTimeout().toMillis(), settings.maxSize()));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted whilst waiting for a database connection!", e);
+        }
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (usable(pooled)) return pooled.lease();
+                discard(pooled);
+            }
+            return create().lease();
+        } catch (final SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void release(final @NotNull PooledConnection pooled) {
+        try {
+            if (!closed && pooled.reset() && pooled.age() < settings.maxLifetime().toNanos()) {
+                idle.offerFirst(pooled);
+            } else {
+                discard(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) discard(pooled);
+        logger.info("Connection pool closed");
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    int idleSize() {
+        return idle.size();
+    }
+
+    long statementHits() {
+        return statementHits.sum();
+    }
+
+    long statementMisses() {
+        return statementMisses.sum();
+    }
+
+    private boolean usable(final @NotNull PooledConnection pooled) {
+        if (pooled.age() >= settings.maxLifetime().toNanos()) return false;
+        if (pooled.idleTime() < ConnectionPool.VALIDATION_BYPASS) return true;
+        try {
+            return pooled.connection().isValid(ConnectionPool.VALIDATION_TIMEOUT);
+        } catch (final SQLException e) {
+            return false;
+        }
+    }
+
+    private @NotNull PooledConnection create() throws SQLException {
+        size.incrementAndGet();
+        try {
+            return connect();
+        } catch (final SQLException | RuntimeException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private @NotNull PooledConnection connect() throws SQLException {
+        return new PooledConnection(
+                this,
+                supplier.get(),
+                new StatementCache(settings.statementCacheSize(), statementHits, statementMisses)
+        );
+    }
+
+    private void discard(final @NotNull PooledConnection pooled) {
+        size.decrementAndGet();
+        pooled.close();
+    }
+
+    private void housekeep() {
+        try {
+            final long idleTimeout = settings.idleTimeout().toNanos();
+            final long maxLifetime = settings.maxLifetime().toNanos();
+            // oldest releases are at the tail of the deque
+            for (final PooledConnection pooled : idle) {
+                final boolean evict = pooled.age() >= maxLifetime
+                                      || (pooled.idleTime() >= idleTimeout && size.get() > settings.minSize());
+                // remove fails when the connection was borrowed in the meantime
+                if (evict && idle.remove(pooled)) discard(pooled);
+            }
+            fill();
+            logger.debug("Connection pool: {} open, {} idle, statement cache {} hits, {} misses",
+                    size(), idleSize(), statementHits(), statementMisses());
+        } catch (final RuntimeException e) {
+            logger.error("Connection pool housekeeping failed!", e);
+        }
+    }
+
+    private void fill() {
+        while (!closed) {
+            final int current = size.get();
+            if (current >= settings.minSize()) return;
+            if (!size.compareAndSet(current, current + 1)) continue;
+            try {
+                idle.offerLast(connect());
+            } catch (final SQLException e) {
+                size.decrementAndGet();
+                logger.warn("Could not open idle database connection: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface ConnectionSupplier {
+        @NotNull
+        Connection get() throws SQLException;
+    }
+
+    record Settings(
+            int minSize,
+            int maxSize,
+            @NotNull Duration idleTimeout,
+            @NotNull Duration maxLifetime,
+            @NotNull Duration acquireTimeout,
+            @NotNull Duration housekeepingPeriod,
+            int statementCacheSize // per connection, 0 disables the cache
+    ) {
+        Settings {
+            if (minSize < 0)
+                throw new IllegalArgumentException("Minimum pool size must not be negative!");
+            if (maxSize < 1)
+                throw new IllegalArgumentException("Maximum pool size must be positive!");
+            if (minSize > maxSize)
+                throw new IllegalArgumentException("Minimum pool size is greater than maximum pool size!");
+            if (statementCacheSize < 0)
+                throw new IllegalArgumentException("Statement cache size must not be negative!");
+        }
+    }
+}
@@ -1,21 +1,38 @@
 package cz.jeme.programu.stolujemeapi.db;
 
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Objects;
 
 public final class CryptoUtils {
     public static final @NotNull String ALGORITHM = "PBKDF2WithHmacSHA512";
-    public static final int ITERATIONS = 1 << 16; // 2^16
+    // hashes stored without their parameters were all created with these
+    public static final int LEGACY_ITERATIONS = 1 << 16; // 2^16
+    public static final int MIN_ITERATIONS = CryptoUtils.LEGACY_ITERATIONS;
+    public static final int MAX_ITERATIONS = 1 << 24;
+    // calibrated iteration counts are rounded to this, so that similar machines agree on the same count
+    public static final int ITERATIONS_STEP = 1 << 14;
+    public static final char HASH_SEPARATOR = '$';
 
     public static final int KEY_LENGTH_BITS = 512; // 64 bytes
     public static final int KEY_LENGTH_BASE64 = CryptoUtils.base64Length(CryptoUtils.KEY_LENGTH_BITS / 8);
+    // algorithm$iterations$key
+    public static final int HASH_LENGTH = CryptoUtils.ALGORITHM.length() + 1
+                                          + String.valueOf(Integer.MAX_VALUE).length() + 1
+                                          + CryptoUtils.KEY_LENGTH_BASE64;
     public static final int SALT_LENGTH_BYTES = 128; // double the key length
     public static final int SALT_LENGTH_BASE64 = CryptoUtils.base64Length(CryptoUtils.SALT_LENGTH_BYTES);
 
@@ -27,6 +44,9 @@ public final class CryptoUtils {
 
     private static final @NotNull SecureRandom SECURE_RANDOM = new SecureRandom();
     private static final @NotNull SecretKeyFactory KEY_FACTORY;
+    private static final @NotNull Logger LOGGER = LoggerFactory.getLogger(CryptoUtils.class);
+
+    private static volatile int iterations = CryptoUtils.LEGACY_ITERATIONS;
 
     static {
         try {
@@ -61,25 +81,123 @@ public final class CryptoUtils {
     }
 
 
+    public static int iterations() {
+        return CryptoUtils.iterations;
+    }
+
+    @ApiStatus.Internal
+    public static void iterations(final int iterations) {
+        if (iterations < CryptoUtils.MIN_ITERATIONS || iterations > CryptoUtils.MAX_ITERATIONS)
+            throw new IllegalArgumentException("Iterations must be between %d and %d!"
+                    .formatted(CryptoUtils.MIN_ITERATIONS, CryptoUtils.MAX_ITERATIONS));
+        CryptoUtils.iterations = iterations;
+    }
+
+    // picks the iteration count that takes about the target time to hash on this machine
+    @ApiStatus.Internal
+    public static int calibrate(final @NotNull Duration target) {
+        final String salt = CryptoUtils.randomSalt();
+        final int sample = CryptoUtils.MIN_ITERATIONS;
+        long best = Long.MAX_VALUE;
+        // the first rounds warm up the jit, the fastest round is the least disturbed one
+        for (int i = 0; i < 5; i++) {
+            final long start = System.nanoTime();
+            CryptoUtils.key("calibration", salt, CryptoUtils.ALGORITHM, sample);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        final double scaled = (double) sample * target.toNanos() / Math.max(1, best);
+        final long rounded = Math.round(scaled / CryptoUtils.ITERATIONS_STEP) * CryptoUtils.ITERATIONS_STEP;
+        final int calibrated = (int) Math.max(CryptoUtils.MIN_ITERATIONS, Math.min(CryptoUtils.MAX_ITERATIONS, rounded));
+        CryptoUtils.iterations(calibrated);
+        CryptoUtils.LOGGER.info("Calibrated password hashing to {} iterations ({} iterations took {} ms, target {} ms)",
+                calibrated, sample, best / 1_000_000, target.toMillis());
+        return calibrated;
+    }
+
+    // hashes with the current parameters, the result carries them along
     public static @NotNull String hash(final @NotNull String input, final @NotNull String salt) {
+        return new PasswordHash(
+                CryptoUtils.ALGORITHM,
+                CryptoUtils.iterations,
+                CryptoUtils.key(input, salt, CryptoUtils.ALGORITHM, CryptoUtils.iterations)
+        ).encode();
+    }
+
+    public static boolean validate(final @NotNull String input, final @NotNull String hash, final @NotNull String salt) {
+        final PasswordHash stored = PasswordHash.parse(hash);
+        final String key = CryptoUtils.key(input, salt, stored.algorithm(), stored.iterations());
+        return MessageDigest.isEqual(
+                key.getBytes(StandardCharsets.US_ASCII),
+                stored.key().getBytes(StandardCharsets.US_ASCII)
+        );
+    }
+
+    // whether the hash was created with other parameters than the current ones
+    public static boolean needsRehash(final @NotNull String hash) {
+        final PasswordHash stored = PasswordHash.parse(hash);
+        return !stored.algorithm().equals(CryptoUtils.ALGORITHM) || stored.iterations() != CryptoUtils.iterations;
+    }
+
+    private static @NotNull String key(final @NotNull String input,
+                                       final @NotNull String salt,
+                                       final @NotNull String algorithm,
+                                       final int iterations) {
         final char[] inputChars = input.toCharArray();
         final byte[] saltBytes = salt.getBytes();
 
-        final PBEKeySpec spec = new PBEKeySpec(inputChars, saltBytes, CryptoUtils.ITERATIONS, CryptoUtils.KEY_LENGTH_BITS);
+        final PBEKeySpec spec = new PBEKeySpec(inputChars, saltBytes, iterations, CryptoUtils.KEY_LENGTH_BITS);
 
         Arrays.fill(inputChars, Character.MIN_VALUE);
         final byte[] encoded;
         try {
-            encoded = CryptoUtils.KEY_FACTORY.generateSecret(spec).getEncoded();
+            final SecretKeyFactory factory = algorithm.equals(CryptoUtils.ALGORITHM)
+                    ? CryptoUtils.KEY_FACTORY
+                    : SecretKeyFactory.getInstance(algorithm);
+            encoded = factory.generateSecret(spec).getEncoded();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException("Could not obtain secret key factory!", e);
         } catch (final InvalidKeySpecException e) {
             throw new RuntimeException("Could not generate secret!", e);
+        } finally {
+            spec.clearPassword();
         }
-        spec.clearPassword();
         return Base64.getEncoder().encodeToString(encoded);
     }
 
-    public static boolean validate(final @NotNull String input, final @NotNull String hash, final @NotNull String salt) {
-        return CryptoUtils.hash(input, salt).equals(hash);
+    public record PasswordHash(
+            @NotNull String algorithm,
+            int iterations,
+            @NotNull String key
+    ) {
+        public PasswordHash {
+            Objects.requireNonNull(algorithm, "algorithm");
+            Objects.requireNonNull(key, "key");
+            if (iterations < 1)
+                throw new IllegalArgumentException("Iterations must be positive!");
+        }
+
+        // hashes without a separator are plain keys from before the parameters were stored
+        public static @NotNull PasswordHash parse(final @NotNull String hash) {
+            final int first = hash.indexOf(CryptoUtils.HASH_SEPARATOR);
+            if (first == -1)
+                return new PasswordHash(CryptoUtils.ALGORITHM, CryptoUtils.LEGACY_ITERATIONS, hash);
+            final int second = hash.indexOf(CryptoUtils.HASH_SEPARATOR, first + 1);
+            if (second == -1)
+                throw new IllegalArgumentException("Password hash is malformed!");
+            try {
+                return new PasswordHash(
+                        hash.substring(0, first),
+                        Integer.parseInt(hash.substring(first + 1, second)),
+                        hash.substring(second + 1)
+                );
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException("Password hash iterations are malformed!", e);
+            }
+        }
+
+        public @NotNull String encode() {
+            return algorithm + CryptoUtils.HASH_SEPARATOR + iterations + CryptoUtils.HASH_SEPARATOR + key;
+        }
     }
 
     public static int base64Length(final int bytes) {
@@ -1,8 +1,5 @@
 package cz.jeme.programu.stolujemeapi.db;
 
-import org.jetbrains.annotations.ApiStatus;
-
+// the schema of all data access objects is created by the migrator
 public interface Dao {
-    @ApiStatus.Internal
-    void init();
-}
\ No newline at end of file
+}
@@ -1,23 +1,49 @@
 package cz.jeme.programu.stolujemeapi.db;
 
 import cz.jeme.programu.stolujemeapi.EnvVar;
+import cz.jeme.programu.stolujemeapi.sql.ResultWrapper;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.stream.Stream;
 
 public enum Database {
     INSTANCE;
 
     private final @NotNull String url = EnvVar.DATABASE_URL.require();
-    private final @NotNull String user = EnvVar.DATABASE_USER.require();
-    private final @NotNull String password = EnvVar.DATABASE_PASSWORD.require();
+    private final @NotNull Properties properties = Database.properties();
     private final @NotNull Logger logger = LoggerFactory.getLogger(getClass());
+    private final @NotNull ConnectionPool pool = new ConnectionPool(
+            () -> DriverManager.getConnection(url, properties),
+            new ConnectionPool.Settings(
+                    EnvVar.DATABASE_POOL_MIN_SIZE.getInt(2),
+                    EnvVar.DATABASE_POOL_MAX_SIZE.getInt(10),
+                    EnvVar.DATABASE_POOL_IDLE_TIMEOUT.getDuration(Duration.ofMinutes(10)),
+                    EnvVar.DATABASE_POOL_MAX_LIFETIME.getDuration(Duration.ofMinutes(30)),
+                    EnvVar.DATABASE_POOL_ACQUIRE_TIMEOUT.getDuration(Duration.ofSeconds(10)),
+                    Duration.ofSeconds(30),
+                    EnvVar.DATABASE_STATEMENT_CACHE_SIZE.getInt(64)
+            )
+    );
+    private final int fetchSize = EnvVar.DATABASE_FETCH_SIZE.getInt(256);
+
+    private static @NotNull Properties properties() {
+        final Properties properties = new Properties();
+        properties.setProperty("user", EnvVar.DATABASE_USER.require());
+        properties.setProperty("password", EnvVar.DATABASE_PASSWORD.require());
+        // statements are prepared once on the server, the pool caches them per connection
+        properties.setProperty("useServerPrepStmts", "true");
+        return properties;
+    }
 
     @ApiStatus.Internal
     public void init() {
+        pool.start();
         logger.info("Testing database connection...");
         try (final Connection connection = connection()) {
             logger.info("Established connection to database");
@@ -36,18 +62,56 @@ public enum Database {
         logger.info("Database connection test success");
     }
 
+    @ApiStatus.Internal
+    public void close() {
+        pool.close();
+    }
+
+    public long statementCacheHits() {
+        return pool.statementHits();
+    }
+
+    public long statementCacheMisses() {
+        return pool.statementMisses();
+    }
+
+    public int fetchSize() {
+        return fetchSize;
+    }
+
+    // the returned connection goes back to the pool when closed
     public @NotNull Connection connection() throws SQLException {
         final Connection connection;
         try {
-            connection = DriverManager.getConnection(
-                    url,
-                    user,
-                    password
-            );
+            connection = pool.borrow();
         } catch (final SQLException e) {
             logger.error("Could not establish connection to database!");
             throw e;
         }
         return connection;
     }
-}
\ No newline at end of file
+
+    // the connection is held until the returned stream is closed, always close it
+    public <T> @NotNull Stream<T> stream(final @NotNull Query query,
+                                         final @NotNull ResultWrapper.RowReader<T> reader) throws SQLException {
+        final Connection connection = connection();
+        try {
+            return query.execute(connection).stream(reader).onClose(() -> {
+                try {
+                    connection.close();
+                } catch (final SQLException e) {
+                    throw new RuntimeException("Could not close connection!", e);
+                }
+            });
+        } catch (final SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Query {
+        @NotNull
+        ResultWrapper execute(final @NotNull Connection connection) throws SQLException;
+    }
+}
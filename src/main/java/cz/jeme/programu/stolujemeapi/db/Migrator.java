@@ -0,0 +1,208 @@
+package cz.jeme.programu.stolujemeapi.db;
+
+import cz.jeme.programu.stolujemeapi.rest.control.UserController;
+import cz.jeme.programu.stolujemeapi.sql.ResultWrapper;
+import cz.jeme.programu.stolujemeapi.sql.StatementWrapper;
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.Resource;
+import io.github.classgraph.ScanResult;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// applies the versioned scripts in db/migration in order, every script is applied exactly once
+public enum Migrator {
+    INSTANCE;
+
+    private static final @NotNull String PATH = "db/migration";
+    private static final @NotNull Pattern NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final @NotNull String LOCK = "stolujeme_migrations";
+    private static final int LOCK_TIMEOUT = 60; // seconds
+
+    // lengths shared with the application code, substituted after the checksum is computed
+    // a value must never change once a script using it was applied, a new script gets a new placeholder instead
+    private static final @NotNull Map<String, Integer> PLACEHOLDERS = Map.of(
+            "EMAIL_LENGTH", UserController.EMAIL_LENGTH_MAX,
+            "NAME_LENGTH", UserController.NAME_LENGTH_MAX,
+            "HASH_LENGTH", CryptoUtils.KEY_LENGTH_BASE64, // bare key of the baseline
+            "PARAMETERIZED_HASH_LENGTH", CryptoUtils.HASH_LENGTH,
+            "SALT_LENGTH", CryptoUtils.SALT_LENGTH_BASE64,
+            "CODE_LENGTH", CryptoUtils.VERIFICATION_LENGTH_BASE64,
+            "TOKEN_LENGTH", CryptoUtils.SESSION_LENGTH_BASE64
+    );
+
+    private final @NotNull Database database = Database.INSTANCE;
+    private final @NotNull Logger logger = LoggerFactory.getLogger(getClass());
+
+    @ApiStatus.Internal
+    public void migrate() {
+        final List<Migration> migrations = migrations();
+        try (final Connection connection = database.connection()) {
+            // another instance starting at the same time must not apply the same scripts
+            // language=mariadb
+            final ResultWrapper lock = StatementWrapper.wrapper(connection.prepareStatement("SELECT GET_LOCK(?, ?);"))
+                    .setString(Migrator.LOCK)
+                    .setInt(Migrator.LOCK_TIMEOUT)
+                    .executeQuery();
+            if (!lock.next() || !Objects.equals(lock.getNullInteger(), 1))
+                throw new RuntimeException("Could not acquire schema migration lock!");
+            try {
+                migrate(connection, migrations);
+            } finally {
+                // language=mariadb
+                StatementWrapper.wrapper(connection.prepareStatement("SELECT RELEASE_LOCK(?);"))
+                        .setString(Migrator.LOCK)
+                        .executeQuery();
+            }
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not migrate database schema!", e);
+        }
+    }
+
+    private void migrate(final @NotNull Connection connection,
+                         final @NotNull List<Migration> migrations) throws SQLException {
+        // language=mariadb
+        final String historyStatementStr = """
+                CREATE TABLE IF NOT EXISTS schema_history
+                (
+                    version        SMALLINT UNSIGNED PRIMARY KEY,
+                    description    VARCHAR(200) NOT NULL,
+                    checksum       CHAR(64)     NOT NULL,
+                    applied_time   DATETIME     NOT NULL,
+                    execution_time INT UNSIGNED NOT NULL
+                );
+                """;
+        connection.prepareStatement(historyStatementStr).execute();
+
+        // language=mariadb
+        final String appliedStatementStr = """
+                SELECT version, checksum
+                FROM schema_history;
+                """;
+        final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(appliedStatementStr))
+                .executeQuery();
+        final Map<Integer, String> applied = new HashMap<>();
+        while (result.next()) applied.put(result.getInt(), result.getString());
+
+        final Set<Integer> known = new HashSet<>();
+        int pending = 0;
+        for (final Migration migration : migrations) {
+            known.add(migration.version());
+            final String checksum = applied.get(migration.version());
+            if (checksum == null) {
+                pending++;
+                continue;
+            }
+            if (!checksum.equals(migration.checksum()))
+                throw new RuntimeException("Checksum of applied migration V%d (%s) does not match its script!"
+                        .formatted(migration.version(), migration.description()));
+        }
+        for (final int version : applied.keySet()) {
+            if (!known.contains(version))
+                logger.warn("Applied migration V{} has no script", version);
+        }
+        if (pending == 0) {
+            logger.info("Database schema is up to date ({} migrations)", applied.size());
+            return;
+        }
+
+        for (final Migration migration : migrations) {
+            if (applied.containsKey(migration.version())) continue;
+            apply(connection, migration);
+        }
+    }
+
+    private void apply(final @NotNull Connection connection, final @NotNull Migration migration) throws SQLException {
+        logger.info("Applying migration V{} ({})...", migration.version(), migration.description());
+        final long start = System.nanoTime();
+        // data definition statements commit implicitly in mariadb, scripts must therefore be idempotent
+        try (final Statement statement = connection.createStatement()) {
+            for (final String sql : migration.statements()) statement.execute(sql);
+        } catch (final SQLException e) {
+            throw new SQLException("Migration V%d (%s) failed!"
+                    .formatted(migration.version(), migration.description()), e);
+        }
+        final long executionTime = (System.nanoTime() - start) / 1_000_000;
+        // language=mariadb
+        final String statementStr = """
+                INSERT INTO schema_history (version, description, checksum, applied_time, execution_time)
+                VALUES (?, ?, ?, ?, ?);
+                """;
+        StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                .setInt(migration.version())
+                .setString(migration.description())
+                .setString(migration.checksum())
+                .setLocalDateTime(LocalDateTime.now())
+                .setLong(executionTime)
+                .execute();
+        logger.info("Applied migration V{} in {} ms", migration.version(), executionTime);
+    }
+
+    private @NotNull List<Migration> migrations() {
+        final List<Migration> migrations = new ArrayList<>();
+        try (final ScanResult result = new ClassGraph()
+                .acceptPaths(Migrator.PATH)
+                .scan()) {
+            for (final Resource resource : result.getResourcesWithExtension("sql")) {
+                final String path = resource.getPath();
+                final Matcher matcher = Migrator.NAME.matcher(path.substring(path.lastIndexOf('/') + 1));
+                if (!matcher.matches())
+                    throw new RuntimeException("Invalid migration script name: " + path);
+                migrations.add(new Migration(
+                        Integer.parseInt(matcher.group(1)),
+                        matcher.group(2).replace('_', ' '),
+                        resource.getContentAsString()
+                ));
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not read migration scripts!", e);
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version() == migrations.get(i - 1).version())
+                throw new RuntimeException("Duplicate migration version: V" + migrations.get(i).version());
+        }
+        return migrations;
+    }
+
+    private record Migration(int version, @NotNull String description, @NotNull String script) {
+        private @NotNull String checksum() {
+            try {
+                final byte[] digest = MessageDigest.getInstance("SHA-256")
+                        .digest(script.getBytes(StandardCharsets.UTF_8));
+                return HexFormat.of().formatHex(digest);
+            } catch (final NoSuchAlgorithmException e) {
+                throw new RuntimeException("Could not obtain message digest!", e);
+            }
+        }
+
+        private @NotNull List<String> statements() {
+            final StringBuilder builder = new StringBuilder();
+            for (final String line : script.split("\\R")) {
+                if (line.strip().startsWith("--")) continue;
+                builder.append(line).append('\n');
+            }
+            String sql = builder.toString();
+            for (final Map.Entry<String, Integer> placeholder : Migrator.PLACEHOLDERS.entrySet())
+                sql = sql.replace("${" + placeholder.getKey() + "}", String.valueOf(placeholder.getValue()));
+            final List<String> statements = new ArrayList<>();
+            for (final String statement : sql.split(";")) {
+                if (!statement.isBlank()) statements.add(statement.strip());
+            }
+            return statements;
+        }
+    }
+}
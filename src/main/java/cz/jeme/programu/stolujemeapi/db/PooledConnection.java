@@ -0,0 +1,152 @@
+package cz.jeme.programu.stolujemeapi.db;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+@ApiStatus.Internal
+final class PooledConnection {
+    private final @NotNull ConnectionPool pool;
+    private final @NotNull Connection connection;
+    private final @NotNull StatementCache cache;
+    private final long creationTime = System.nanoTime();
+    private volatile long releaseTime = creationTime;
+    // statements opened by the current lease, data access objects rely on the connection closing them
+    private final @NotNull List<Statement> statements = new ArrayList<>();
+
+    PooledConnection(final @NotNull ConnectionPool pool,
+                     final @NotNull Connection connection,
+                     final @NotNull StatementCache cache) {
+        this.pool = pool;
+        this.connection = connection;
+        this.cache = cache;
+    }
+
+    // closing the leased connection returns it to the pool instead of closing the physical connection
+    @NotNull
+    Connection lease() {
+        return (Connection) Proxy.newProxyInstance(
+                PooledConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Lease()
+        );
+    }
+
+    @NotNull
+    Connection connection() {
+        return connection;
+    }
+
+    long age() {
+        return System.nanoTime() - creationTime;
+    }
+
+    long idleTime() {
+        return System.nanoTime() - releaseTime;
+    }
+
+    // returns false when the connection is not reusable
+    boolean reset() {
+        for (final Statement statement : statements) {
+            try {
+                statement.close();
+            } catch (final SQLException ignored) {
+                // the connection is validated below
+            }
+        }
+        statements.clear();
+        cache.checkInAll();
+        try {
+            if (connection.isClosed()) return false;
+            if (!connection.getAutoCommit()) {
+                // uncommitted work of a failed transaction must not leak into the next lease
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            connection.clearWarnings();
+        } catch (final SQLException e) {
+            return false;
+        }
+        releaseTime = System.nanoTime();
+        return true;
+    }
+
+    void close() {
+        cache.close();
+        try {
+            connection.close();
+        } catch (final SQLException ignored) {
+            // the connection is being thrown away anyway
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+        private boolean closed = false;
+
+        @Override
+        public @Nullable Object invoke(final @NotNull Object proxy,
+                                       final @NotNull Method method,
+                                       final @Nullable Object @Nullable [] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (closed) return null;
+                    closed = true;
+                    pool.release(PooledConnection.this);
+                    return null;
+                }
+                case "isClosed" -> {
+                    if (closed) return true;
+                }
+                case "equals" -> {
+                    return args != null && proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection{" +
+                           "connection=" + connection +
+                           ", closed=" + closed +
+                           '}';
+                }
+            }
+            if (closed)
+                throw new SQLException("This connection was already returned to the pool!");
+            if (method.getName().equals("prepareStatement") && args != null) {
+                final Class<?>[] types = method.getParameterTypes();
+                if (types.length == 1)
+                    return prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+                if (types.length == 2 && types[1] == int.class)
+                    return prepare((String) args[0], (int) args[1]);
+            }
+            final Object result;
+            try {
+                result = method.invoke(connection, args);
+            } catch (final InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof final Statement statement) statements.add(statement);
+            return result;
+        }
+
+        private @NotNull PreparedStatement prepare(final @NotNull String sql, final int autoGeneratedKeys) throws SQLException {
+            final PreparedStatement cached = cache.checkOut(sql, autoGeneratedKeys);
+            if (cached != null) return cached;
+            final PreparedStatement statement = connection.prepareStatement(sql, autoGeneratedKeys);
+            final PreparedStatement added = cache.add(sql, autoGeneratedKeys, statement);
+            if (added == statement) statements.add(statement); // not cached, close it with the lease
+            return added;
+        }
+    }
+}
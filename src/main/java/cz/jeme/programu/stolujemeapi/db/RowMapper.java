@@ -0,0 +1,152 @@
+package cz.jeme.programu.stolujemeapi.db;
+
+import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import cz.jeme.programu.stolujemeapi.db.meal.Meal;
+import cz.jeme.programu.stolujemeapi.db.photo.PhotoUpload;
+import cz.jeme.programu.stolujemeapi.sql.ResultWrapper;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.UUID;
+
+// maps consecutive columns straight to the canonical constructor of an entry record
+// columns are read in record component order, nested entries are flattened in place
+public final class RowMapper<T extends Entry> {
+    private static final @NotNull MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final @NotNull MethodHandle SUM;
+
+    // boxed types are only used for nullable components
+    private static final @NotNull Map<Class<?>, String> GETTERS = Map.ofEntries(
+            Map.entry(int.class, "getInt"),
+            Map.entry(long.class, "getLong"),
+            Map.entry(double.class, "getDouble"),
+            Map.entry(boolean.class, "getBoolean"),
+            Map.entry(Integer.class, "getNullInteger"),
+            Map.entry(Long.class, "getNullLong"),
+            Map.entry(Double.class, "getNullDouble"),
+            Map.entry(Boolean.class, "getNullBoolean"),
+            Map.entry(String.class, "getString"),
+            Map.entry(UUID.class, "getUUID"),
+            Map.entry(LocalDate.class, "getLocalDate"),
+            Map.entry(LocalTime.class, "getLocalTime"),
+            Map.entry(LocalDateTime.class, "getLocalDateTime"),
+            Map.entry(Canteen.class, "getCanteen"),
+            Map.entry(Meal.Course.class, "getCourse"),
+            Map.entry(File.class, "getFile"),
+            Map.entry(PhotoUpload.Status.class, "getUploadStatus")
+    );
+
+    private static final @NotNull ClassValue<RowMapper<?>> MAPPERS = new ClassValue<>() {
+        @Override
+        protected @NotNull RowMapper<?> computeValue(final @NotNull Class<?> type) {
+            return new RowMapper<>(type.asSubclass(Entry.class));
+        }
+    };
+
+    static {
+        try {
+            SUM = RowMapper.LOOKUP.findStatic(Integer.class, "sum", MethodType.methodType(int.class, int.class, int.class));
+        } catch (final NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException("Could not find sum method!", e);
+        }
+    }
+
+    // mappers are compiled once per record and shared
+    public static <T extends Record & Entry> @NotNull RowMapper<T> of(final @NotNull Class<T> type) {
+        @SuppressWarnings("unchecked") final RowMapper<T> mapper = (RowMapper<T>) RowMapper.MAPPERS.get(type);
+        return mapper;
+    }
+
+    private final @NotNull Class<T> type;
+    private final @NotNull MethodHandle handle; // (ResultWrapper, int last column)Object
+    private final int columns;
+
+    private RowMapper(final @NotNull Class<T> type) {
+        if (!type.isRecord())
+            throw new IllegalArgumentException("Row mapper type must be a record! Type: " + type.getName());
+        this.type = type;
+        final int[] columns = new int[1];
+        handle = RowMapper.compile(type, columns)
+                .asType(MethodType.methodType(Object.class, ResultWrapper.class, int.class));
+        this.columns = columns[0];
+    }
+
+    // returns a handle of type (ResultWrapper, int last column)type, counting the consumed columns
+    private static @NotNull MethodHandle compile(final @NotNull Class<?> type, final int @NotNull [] columns) {
+        final RecordComponent[] components = type.getRecordComponents();
+        final Class<?>[] types = new Class<?>[components.length];
+        MethodHandle handle;
+        try {
+            for (int i = 0; i < components.length; i++) types[i] = components[i].getType();
+            handle = RowMapper.LOOKUP.findConstructor(type, MethodType.methodType(void.class, types));
+            // replace the constructor arguments from the last one, so the positions of the others do not shift
+            for (int i = components.length - 1; i >= 0; i--)
+                handle = MethodHandles.collectArguments(handle, i, RowMapper.reader(types[i], columns));
+        } catch (final NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException("Could not compile row mapper for %s!".formatted(type.getName()), e);
+        }
+        // all readers share the same result wrapper and offset
+        final int[] reorder = new int[components.length * 2];
+        for (int i = 0; i < reorder.length; i++) reorder[i] = i % 2;
+        return MethodHandles.permuteArguments(
+                handle,
+                MethodType.methodType(type, ResultWrapper.class, int.class),
+                reorder
+        );
+    }
+
+    // collectArguments runs from the last component, columns are therefore assigned from the end as well
+    private static @NotNull MethodHandle reader(final @NotNull Class<?> type,
+                                                final int @NotNull [] columns) throws NoSuchMethodException, IllegalAccessException {
+        final MethodHandle reader;
+        if (type.isRecord() && Entry.class.isAssignableFrom(type)) {
+            final RowMapper<?> nested = RowMapper.MAPPERS.get(type);
+            reader = nested.handle.asType(MethodType.methodType(type, ResultWrapper.class, int.class));
+            final MethodHandle shifted = MethodHandles.filterArguments(reader, 1, RowMapper.shift(-columns[0]));
+            columns[0] += nested.columns;
+            return shifted;
+        }
+        final String getter = RowMapper.GETTERS.get(type);
+        if (getter == null)
+            throw new IllegalArgumentException("Unsupported record component type: " + type.getName());
+        reader = RowMapper.LOOKUP.findVirtual(ResultWrapper.class, getter, MethodType.methodType(type, int.class));
+        return MethodHandles.filterArguments(reader, 1, RowMapper.shift(-columns[0]++));
+    }
+
+    // readers are relative to the last column of the record
+    private static @NotNull MethodHandle shift(final int by) {
+        return MethodHandles.insertArguments(RowMapper.SUM, 1, by);
+    }
+
+    public @NotNull Class<T> type() {
+        return type;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public @NotNull T map(final @NotNull ResultWrapper result) throws SQLException {
+        return map(result, 0);
+    }
+
+    // maps the columns offset + 1 to offset + columns
+    public @NotNull T map(final @NotNull ResultWrapper result, final int offset) throws SQLException {
+        try {
+            return type.cast((Object) handle.invokeExact(result, offset + columns));
+        } catch (final SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new RuntimeException("Could not map row to %s!".formatted(type.getSimpleName()), e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package cz.jeme.programu.stolujemeapi.db;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// least recently used prepared statements of a single pooled connection, keyed by their sql text
+@ApiStatus.Internal
+final class StatementCache {
+    private final int capacity;
+    private final @NotNull LongAdder hits;
+    private final @NotNull LongAdder misses;
+    private final @NotNull Map<Key, CachedStatement> statements;
+
+    StatementCache(final int capacity, final @NotNull LongAdder hits, final @NotNull LongAdder misses) {
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        statements = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.@NotNull Entry<Key, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.capacity) return false;
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    // returns null when the statement is not cached or is currently in use
+    @Nullable
+    PreparedStatement checkOut(final @NotNull String sql, final int autoGeneratedKeys) {
+        final CachedStatement cached = statements.get(new Key(sql, autoGeneratedKeys));
+        if (cached == null || cached.lease != null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached.lease();
+    }
+
+    // returns the statement itself when it could not be cached, the caller is then responsible for closing it
+    @NotNull
+    PreparedStatement add(final @NotNull String sql,
+                          final int autoGeneratedKeys,
+                          final @NotNull PreparedStatement statement) {
+        final Key key = new Key(sql, autoGeneratedKeys);
+        if (capacity < 1 || statements.containsKey(key)) return statement;
+        final CachedStatement cached = new CachedStatement(statement);
+        statements.put(key, cached);
+        return cached.lease();
+    }
+
+    // called when a connection lease ends, all statements become available again
+    void checkInAll() {
+        for (final CachedStatement cached : statements.values()) cached.checkIn();
+    }
+
+    void close() {
+        for (final CachedStatement cached : statements.values()) cached.evict();
+        statements.clear();
+    }
+
+    private record Key(@NotNull String sql, int autoGeneratedKeys) {
+    }
+
+    private static final class CachedStatement {
+        private final @NotNull PreparedStatement statement;
+        private @Nullable Lease lease;
+        private boolean evicted = false;
+
+        private CachedStatement(final @NotNull PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        private @NotNull PreparedStatement lease() {
+            lease = new Lease();
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    StatementCache.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    lease
+            );
+        }
+
+        private void checkIn() {
+            if (lease == null) return;
+            lease = null;
+            if (evicted) {
+                close();
+                return;
+            }
+            try {
+                statement.clearParameters();
+                statement.setFetchSize(0); // the next lease must not stream unless it asks to
+            } catch (final SQLException e) {
+                // a broken statement would fail every following lease
+                evicted = true;
+                close();
+            }
+        }
+
+        private void evict() {
+            evicted = true;
+            if (lease == null) close();
+        }
+
+        private void close() {
+            try {
+                statement.close();
+            } catch (final SQLException ignored) {
+                // the statement is being thrown away anyway
+            }
+        }
+
+        private final class Lease implements InvocationHandler {
+            @Override
+            public @Nullable Object invoke(final @NotNull Object proxy,
+                                           final @NotNull Method method,
+                                           final @Nullable Object @Nullable [] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close" -> {
+                        if (lease == this) checkIn();
+                        return null;
+                    }
+                    case "isClosed" -> {
+                        if (lease != this) return true;
+                    }
+                    case "equals" -> {
+                        return args != null && proxy == args[0];
+                    }
+                    case "hashCode" -> {
+                        return System.identityHashCode(proxy);
+                    }
+                    case "toString" -> {
+                        return "CachedStatement{" +
+                               "statement=" + statement +
+                               ", closed=" + (lease != this) +
+                               '}';
+                    }
+                }
+                if (lease != this)
+                    throw new SQLException("This statement was already returned to the cache!");
+                try {
+                    return method.invoke(statement, args);
+                } catch (final InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
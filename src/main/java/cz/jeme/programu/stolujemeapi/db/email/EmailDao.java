@@ -0,0 +1,180 @@
+package cz.jeme.programu.stolujemeapi.db.email;
+
+import cz.jeme.programu.stolujemeapi.db.Dao;
+import cz.jeme.programu.stolujemeapi.db.Database;
+import cz.jeme.programu.stolujemeapi.db.RowMapper;
+import cz.jeme.programu.stolujemeapi.sql.ResultWrapper;
+import cz.jeme.programu.stolujemeapi.sql.StatementWrapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public enum EmailDao implements Dao {
+    INSTANCE;
+
+    public static final int ERROR_LENGTH_MAX = 500;
+
+    private final @NotNull Database database = Database.INSTANCE;
+    private final @NotNull RowMapper<OutboxEmail> emailMapper = RowMapper.of(OutboxEmail.class);
+
+    public @NotNull OutboxEmail insertEmail(final @NotNull EmailSkeleton skeleton) {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    INSERT INTO email_outbox (creation_time, recipient, subject, text, next_attempt_time)
+                    VALUES (?, ?, ?, ?, ?);
+                    """;
+            final LocalDateTime creationTime = LocalDateTime.now();
+            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(
+                            statementStr,
+                            Statement.RETURN_GENERATED_KEYS
+                    ))
+                    .setLocalDateTime(creationTime)
+                    .setString(skeleton.recipient())
+                    .setString(skeleton.subject())
+                    .setString(skeleton.text())
+                    .setLocalDateTime(creationTime)
+                    .executeGenerate();
+            if (!result.next()) throw new RuntimeException("Id was not returned!");
+            return new OutboxEmail.Builder()
+                    .id(result.getInt())
+                    .creationTime(creationTime)
+                    .recipient(skeleton.recipient())
+                    .subject(skeleton.subject())
+                    .text(skeleton.text())
+                    .attempts(0)
+                    .build();
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not create email!", e);
+        }
+    }
+
+    // due emails are leased, so that no other dispatcher picks them up until the lease runs out
+    public @NotNull List<OutboxEmail> claimEmails(final int limit, final @NotNull Duration lease) {
+        try (final Connection connection = database.connection()) {
+            connection.setAutoCommit(false);
+            final StatementWrapper wrapper = StatementWrapper.wrapper();
+            try {
+                final LocalDateTime now = LocalDateTime.now();
+                // language=mariadb
+                final String claimStatementStr = """
+                        SELECT id_email, creation_time, recipient, subject, text, attempts
+                        FROM email_outbox
+                        WHERE sent_time IS NULL
+                          AND failed_time IS NULL
+                          AND next_attempt_time <= ?
+                        ORDER BY next_attempt_time
+                        LIMIT ?
+                        FOR UPDATE SKIP LOCKED;
+                        """;
+                final ResultWrapper result = wrapper.wrap(connection.prepareStatement(claimStatementStr))
+                        .setLocalDateTime(now)
+                        .setInt(limit)
+                        .executeQuery();
+                final List<OutboxEmail> emails = new ArrayList<>();
+                while (result.next()) emails.add(emailMapper.map(result));
+
+                if (!emails.isEmpty()) {
+                    // language=mariadb
+                    final String leaseStatementStr = """
+                            UPDATE email_outbox
+                            SET next_attempt_time = ?
+                            WHERE id_email = ?;
+                            """;
+                    wrapper.wrap(connection.prepareStatement(leaseStatementStr));
+                    for (final OutboxEmail email : emails)
+                        wrapper.setLocalDateTime(now.plus(lease)).setInt(email.id()).addBatch();
+                    wrapper.executeBatch();
+                }
+                connection.commit();
+                return emails;
+            } catch (final SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not claim emails!", e);
+        }
+    }
+
+    public void markSent(final @NotNull Collection<OutboxEmail> emails) {
+        if (emails.isEmpty()) return;
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    UPDATE email_outbox
+                    SET sent_time = ?,
+                        attempts  = ?
+                    WHERE id_email = ?;
+                    """;
+            final StatementWrapper wrapper = StatementWrapper.wrapper(connection.prepareStatement(statementStr));
+            final LocalDateTime now = LocalDateTime.now();
+            for (final OutboxEmail email : emails)
+                wrapper.setLocalDateTime(now).setInt(email.attempts() + 1).setInt(email.id()).addBatch();
+            wrapper.executeBatch();
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not mark emails as sent!", e);
+        }
+    }
+
+    // retried at the next attempt time, or given up on when it is null
+    public void markFailed(final @NotNull OutboxEmail email,
+                           final @Nullable LocalDateTime nextAttemptTime,
+                           final @NotNull String error) {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String retryStatementStr = """
+                    UPDATE email_outbox
+                    SET attempts          = ?,
+                        next_attempt_time = ?,
+                        last_error        = ?
+                    WHERE id_email = ?;
+                    """;
+            // language=mariadb
+            final String failStatementStr = """
+                    UPDATE email_outbox
+                    SET attempts    = ?,
+                        failed_time = ?,
+                        last_error  = ?
+                    WHERE id_email = ?;
+                    """;
+            StatementWrapper.wrapper(connection.prepareStatement(nextAttemptTime == null ? failStatementStr : retryStatementStr))
+                    .setInt(email.attempts() + 1)
+                    .setLocalDateTime(nextAttemptTime == null ? LocalDateTime.now() : nextAttemptTime)
+                    .setString(error.length() > EmailDao.ERROR_LENGTH_MAX ? error.substring(0, EmailDao.ERROR_LENGTH_MAX) : error)
+                    .setInt(email.id())
+                    .executeUpdate();
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not mark email as failed!", e);
+        }
+    }
+
+    // deletes at most limit emails that were sent or given up on before the cutoff
+    public int deleteFinishedEmails(final @NotNull LocalDateTime cutoff, final int limit) {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    DELETE
+                    FROM email_outbox
+                    WHERE sent_time < ?
+                       OR failed_time < ?
+                    LIMIT ?;
+                    """;
+            return StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setLocalDateTime(cutoff)
+                    .setLocalDateTime(cutoff)
+                    .setInt(limit)
+                    .executeUpdate();
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not delete finished emails!", e);
+        }
+    }
+}
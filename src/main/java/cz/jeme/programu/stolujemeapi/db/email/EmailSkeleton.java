@@ -0,0 +1,47 @@
+package cz.jeme.programu.stolujemeapi.db.email;
+
+import cz.jeme.programu.stolujemeapi.db.Skeleton;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+public record EmailSkeleton(
+        @NotNull String recipient,
+        @NotNull String subject,
+        @NotNull String text
+) implements Skeleton {
+    private EmailSkeleton(final @NotNull Builder builder) {
+        this(
+                Objects.requireNonNull(builder.recipient, "recipient"),
+                Objects.requireNonNull(builder.subject, "subject"),
+                Objects.requireNonNull(builder.text, "text")
+        );
+    }
+
+    public static final class Builder implements Skeleton.Builder<Builder, EmailSkeleton> {
+        private @Nullable String recipient;
+        private @Nullable String subject;
+        private @Nullable String text;
+
+        public @NotNull Builder recipient(final @NotNull String recipient) {
+            this.recipient = recipient;
+            return this;
+        }
+
+        public @NotNull Builder subject(final @NotNull String subject) {
+            this.subject = subject;
+            return this;
+        }
+
+        public @NotNull Builder text(final @NotNull String text) {
+            this.text = text;
+            return this;
+        }
+
+        @Override
+        public @NotNull EmailSkeleton build() {
+            return new EmailSkeleton(this);
+        }
+    }
+}
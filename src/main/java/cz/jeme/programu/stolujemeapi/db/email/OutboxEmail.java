@@ -0,0 +1,75 @@
+package cz.jeme.programu.stolujemeapi.db.email;
+
+import cz.jeme.programu.stolujemeapi.db.Entry;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public record OutboxEmail(
+        int id,
+        @NotNull LocalDateTime creationTime,
+        @NotNull String recipient,
+        @NotNull String subject,
+        @NotNull String text,
+        int attempts
+) implements Entry {
+    private OutboxEmail(final @NotNull Builder builder) {
+        this(
+                Objects.requireNonNull(builder.id, "id"),
+                Objects.requireNonNull(builder.creationTime, "creationTime"),
+                Objects.requireNonNull(builder.recipient, "recipient"),
+                Objects.requireNonNull(builder.subject, "subject"),
+                Objects.requireNonNull(builder.text, "text"),
+                Objects.requireNonNull(builder.attempts, "attempts")
+        );
+    }
+
+    @ApiStatus.Internal
+    public static final class Builder implements Entry.Builder<Builder, OutboxEmail> {
+        private @Nullable Integer id;
+        private @Nullable LocalDateTime creationTime;
+        private @Nullable String recipient;
+        private @Nullable String subject;
+        private @Nullable String text;
+        private @Nullable Integer attempts;
+
+        @Override
+        public @NotNull Builder id(final int id) {
+            this.id = id;
+            return this;
+        }
+
+        public @NotNull Builder creationTime(final @Nullable LocalDateTime creationTime) {
+            this.creationTime = creationTime;
+            return this;
+        }
+
+        public @NotNull Builder recipient(final @Nullable String recipient) {
+            this.recipient = recipient;
+            return this;
+        }
+
+        public @NotNull Builder subject(final @Nullable String subject) {
+            this.subject = subject;
+            return this;
+        }
+
+        public @NotNull Builder text(final @Nullable String text) {
+            this.text = text;
+            return this;
+        }
+
+        public @NotNull Builder attempts(final int attempts) {
+            this.attempts = attempts;
+            return this;
+        }
+
+        @Override
+        public @NotNull OutboxEmail build() {
+            return new OutboxEmail(this);
+        }
+    }
+}
@@ -1,69 +1,34 @@
 package cz.jeme.programu.stolujemeapi.db.meal;
 
+import cz.jeme.programu.stolujemeapi.EnvVar;
 import cz.jeme.programu.stolujemeapi.canteen.Canteen;
 import cz.jeme.programu.stolujemeapi.db.Dao;
 import cz.jeme.programu.stolujemeapi.db.Database;
+import cz.jeme.programu.stolujemeapi.db.RowMapper;
 import cz.jeme.programu.stolujemeapi.sql.ResultWrapper;
 import cz.jeme.programu.stolujemeapi.sql.StatementWrapper;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
 import java.sql.Statement;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 public enum MealDao implements Dao {
     INSTANCE;
 
-    private final @NotNull Database database = Database.INSTANCE;
+    private static final int DEADLOCK_ATTEMPTS = 5;
 
-    @Override
-    public void init() {
-        try (final Connection connection = database.connection()) {
-            // language=mariadb
-            final String mealsStatementStr = """
-                    CREATE TABLE IF NOT EXISTS meals
-                    (
-                        id_meal     MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
-                        uuid        UUID UNIQUE   NOT NULL,
-                        canteen     VARCHAR(30)   NOT NULL,
-                        course      VARCHAR(30)   NOT NULL,
-                        description VARCHAR(1000) NULL DEFAULT NULL
-                    );
-                    """;
-            connection.prepareStatement(mealsStatementStr).execute();
-            // language=mariadb
-            final String mealNamesStatementStr = """
-                    CREATE TABLE IF NOT EXISTS meal_names
-                    (
-                        id_meal_name MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
-                        id_meal      MEDIUMINT UNSIGNED NOT NULL,
-                        FOREIGN KEY (id_meal) REFERENCES meals (id_meal),
-                        name         VARCHAR(500)       NOT NULL UNIQUE
-                    );
-                    """;
-            connection.prepareStatement(mealNamesStatementStr).execute();
-            // language=mariadb
-            final String menuStatementStr = """
-                    CREATE TABLE IF NOT EXISTS menu
-                    (
-                        id_menu       MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
-                        id_meal       MEDIUMINT UNSIGNED NOT NULL,
-                        FOREIGN KEY (id_meal) REFERENCES meals (id_meal),
-                        id_meal_name  MEDIUMINT UNSIGNED NOT NULL,
-                        FOREIGN KEY (id_meal_name) REFERENCES meal_names (id_meal_name),
-                        uuid          UUID UNIQUE        NOT NULL,
-                        date          DATE               NOT NULL,
-                        course_number TINYINT            NULL DEFAULT NULL,
-                        CHECK (course_number >= 1)
-                    );
-                    """;
-            connection.prepareStatement(menuStatementStr).execute();
-        } catch (final SQLException e) {
-            throw new RuntimeException("Could not initialize meal data access object!", e);
-        }
-    }
+    private final @NotNull Database database = Database.INSTANCE;
+    private final @NotNull RowMapper<Meal> mealMapper = RowMapper.of(Meal.class);
+    private final @NotNull RowMapper<MenuEntry> menuEntryMapper = RowMapper.of(MenuEntry.class);
+    private final @NotNull RowMapper<MealName> mealNameMapper = RowMapper.of(MealName.class);
+    private final @NotNull MealNameIndex mealNameIndex = new MealNameIndex(EnvVar.MEAL_NAME_INDEX_SIZE.getInt(50_000));
 
     // MEAL
 
@@ -71,7 +36,7 @@ public enum MealDao implements Dao {
         try (final Connection connection = database.connection()) {
             // language=mariadb
             final String statementStr = """
-                    SELECT uuid, canteen, course, description
+                    SELECT id_meal, uuid, course, canteen, description
                     FROM meals
                     WHERE id_meal = ?;
                     """;
@@ -79,14 +44,7 @@ public enum MealDao implements Dao {
                     .setInt(id)
                     .executeQuery();
             if (!result.next()) return Optional.empty();
-            return Optional.of(new Meal.Builder()
-                    .id(id)
-                    .uuid(result.getUUID())
-                    .canteen(result.getCanteen())
-                    .course(result.getCourse())
-                    .description(result.getString())
-                    .build()
-            );
+            return Optional.of(mealMapper.map(result));
         } catch (final SQLException e) {
             throw new RuntimeException("Could not find meal!", e);
         }
@@ -96,7 +54,7 @@ public enum MealDao implements Dao {
         try (final Connection connection = database.connection()) {
             // language=mariadb
             final String statementStr = """
-                    SELECT id_meal, canteen, course, description
+                    SELECT id_meal, uuid, course, canteen, description
                     FROM meals
                     WHERE uuid = ?;
                     """;
@@ -104,14 +62,7 @@ public enum MealDao implements Dao {
                     .setUUID(uuid)
                     .executeQuery();
             if (!result.next()) return Optional.empty();
-            return Optional.of(new Meal.Builder()
-                    .id(result.getInt())
-                    .uuid(uuid)
-                    .canteen(result.getCanteen())
-                    .course(result.getCourse())
-                    .description(result.getString())
-                    .build()
-            );
+            return Optional.of(mealMapper.map(result));
         } catch (final SQLException e) {
             throw new RuntimeException("Could not find meal!", e);
         }
@@ -132,13 +83,15 @@ public enum MealDao implements Dao {
                     .setNullString(skeleton.description())
                     .executeGenerate();
             if (!result.next()) throw new RuntimeException("Id was not returned!");
-            return new Meal.Builder()
+            final Meal meal = new Meal.Builder()
                     .id(result.getInt())
                     .uuid(skeleton.uuid())
                     .course(skeleton.course())
                     .canteen(skeleton.canteen())
                     .description(skeleton.description())
                     .build();
+            mealNameIndex.putMeal(meal);
+            return meal;
         } catch (final SQLException e) {
             throw new RuntimeException("Could not create meal!", e);
         }
@@ -149,151 +102,215 @@ public enum MealDao implements Dao {
     public @NotNull List<MenuEntry> menuEntriesByDates(final @NotNull Canteen canteen,
                                                        final @NotNull LocalDate fromDate,
                                                        final @NotNull LocalDate toDate) {
+        try (final Stream<MenuEntry> menuEntries = streamMenuEntriesByDates(canteen, fromDate, toDate)) {
+            return menuEntries.toList();
+        }
+    }
+
+    // the stream holds a database connection until it is closed
+    public @NotNull Stream<MenuEntry> streamMenuEntriesByDates(final @NotNull Canteen canteen,
+                                                               final @NotNull LocalDate fromDate,
+                                                               final @NotNull LocalDate toDate) {
         if (fromDate.isAfter(toDate))
             throw new IllegalArgumentException("From date is after to date!");
-        try (final Connection connection = database.connection()) {
-            // language=mariadb
-            final String statementStr = """
-                    SELECT menu.id_menu,
-                           menu.uuid,
-                           menu.date,
-                           menu.course_number,
-                           meal_names.name,
-                           meals.id_meal,
-                           meals.uuid,
-                           meals.canteen,
-                           meals.course,
-                           meals.description
-                    FROM menu,
-                         meal_names,
-                         meals
-                    WHERE menu.date BETWEEN ? AND ?
-                      AND meals.canteen = ?
-                      AND menu.id_meal_name = meal_names.id_meal_name
-                      AND menu.id_meal = meals.id_meal
-                    ORDER BY menu.date;
-                    """;
-            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
-                    .setLocalDate(fromDate)
-                    .setLocalDate(toDate)
-                    .setString(canteen.name())
-                    .executeQuery();
-
-            final List<MenuEntry> menuEntries = new ArrayList<>();
-            while (result.next()) {
-                menuEntries.add(new MenuEntry.Builder()
-                        .id(result.getInt())
-                        .uuid(result.getUUID())
-                        .date(result.getLocalDate())
-                        .courseNumber(result.getNullInteger())
-                        .mealName(result.getString())
-                        .meal(new Meal.Builder()
-                                .id(result.getInt())
-                                .uuid(result.getUUID())
-                                .canteen(result.getCanteen())
-                                .course(result.getCourse())
-                                .description(result.getString())
-                                .build()
-                        ).build()
-                );
-            }
-            return menuEntries;
+        // language=mariadb
+        final String statementStr = """
+                SELECT menu.id_menu,
+                       meals.id_meal,
+                       meals.uuid,
+                       meals.course,
+                       meals.canteen,
+                       meals.description,
+                       meal_names.name,
+                       menu.uuid,
+                       menu.date,
+                       menu.course_number
+                FROM menu,
+                     meal_names,
+                     meals
+                WHERE menu.date BETWEEN ? AND ?
+                  AND meals.canteen = ?
+                  AND menu.id_meal_name = meal_names.id_meal_name
+                  AND menu.id_meal = meals.id_meal
+                ORDER BY menu.date;
+                """;
+        try {
+            return database.stream(
+                    connection -> StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                            .setFetchSize(database.fetchSize())
+                            .setLocalDate(fromDate)
+                            .setLocalDate(toDate)
+                            .setString(canteen.name())
+                            .executeQuery(),
+                    menuEntryMapper::map
+            );
         } catch (final SQLException e) {
             throw new RuntimeException("Could not find menu entry!", e);
         }
     }
 
-    public void updateMenuDay(final @NotNull LocalDate date, final @NotNull Collection<MenuEntrySkeleton> entries) {
+    // replaces the menu of one canteen on one day, menus of other canteens are left untouched
+    // the fingerprint of the day is stored in the same transaction, returns the number of rows deleted and inserted
+    public int updateMenuDay(final @NotNull Canteen canteen,
+                             final @NotNull LocalDate date,
+                             final @NotNull Collection<MenuEntrySkeleton> entries,
+                             final @NotNull String fingerprint) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return tryUpdateMenuDay(canteen, date, entries, fingerprint);
+            } catch (final SQLException e) {
+                // canteens ingested in parallel take gap locks on the same dates of the menu index
+                // and may deadlock, innodb then rolls one of them back and the day is simply written again
+                if (!MealDao.deadlock(e) || attempt == MealDao.DEADLOCK_ATTEMPTS)
+                    throw new RuntimeException("Could not update menu entries!", e);
+            }
+        }
+    }
+
+    private int tryUpdateMenuDay(final @NotNull Canteen canteen,
+                                 final @NotNull LocalDate date,
+                                 final @NotNull Collection<MenuEntrySkeleton> entries,
+                                 final @NotNull String fingerprint) throws SQLException {
         try (final Connection connection = database.connection()) {
             connection.setAutoCommit(false);
             final StatementWrapper wrapper = StatementWrapper.wrapper();
             try {
-                final Set<Integer> deletions = new HashSet<>();
                 // language=mariadb
-                final String deletionsStatementStr = """
-                        SELECT id_menu
-                        FROM menu
-                        WHERE date = ?;
+                final String currentStatementStr = """
+                        SELECT menu.id_menu, menu.id_meal, menu.id_meal_name, menu.course_number
+                        FROM menu,
+                             meals
+                        WHERE menu.date = ?
+                          AND meals.canteen = ?
+                          AND menu.id_meal = meals.id_meal
+                        FOR UPDATE;
                         """;
-                final ResultWrapper deletionsResult = wrapper.wrap(connection.prepareStatement(deletionsStatementStr))
+                final ResultWrapper currentResult = wrapper.wrap(connection.prepareStatement(currentStatementStr))
                         .setLocalDate(date)
+                        .setCanteen(canteen)
                         .executeQuery();
 
-                while (deletionsResult.next()) deletions.add(deletionsResult.getInt());
+                // the same dish may be served more than once a day, hence a queue of ids per key
+                final Map<MenuKey, Deque<Integer>> current = new HashMap<>();
+                while (currentResult.next()) {
+                    final int id = currentResult.getInt();
+                    current.computeIfAbsent(
+                            new MenuKey(currentResult.getInt(), currentResult.getInt(), currentResult.getNullInteger()),
+                            key -> new ArrayDeque<>()
+                    ).add(id);
+                }
 
                 final List<MenuEntrySkeleton> additions = new ArrayList<>();
                 for (final MenuEntrySkeleton skeleton : entries) {
-                    // language=mariadb
-                    final String existenceStatementStr = """
-                            SELECT id_menu
-                            FROM menu
-                            WHERE date = ?
-                              AND id_meal = ?
-                              AND id_meal_name = ?
-                              AND IFNULL(course_number, -1) = IFNULL(?, -1); -- null-wise equals
-                            """;
-                    final ResultWrapper existenceResult = wrapper.wrap(connection.prepareStatement(existenceStatementStr))
-                            .setLocalDate(date)
-                            .setInt(skeleton.mealId())
-                            .setInt(skeleton.mealNameId())
-                            .setNullInteger(skeleton.courseNumber())
-                            .executeQuery();
-
-                    if (existenceResult.next()) {
-                        deletions.remove(existenceResult.getInt());
-                    } else {
-                        additions.add(skeleton);
-                    }
+                    final Deque<Integer> ids = current.get(
+                            new MenuKey(skeleton.mealId(), skeleton.mealNameId(), skeleton.courseNumber())
+                    );
+                    if (ids == null || ids.pollFirst() == null) additions.add(skeleton);
                 }
 
                 // language=mariadb
                 final String deleteStatementStr = """
                         DELETE
                         FROM menu
-                        WHERE id_menu = ?
+                        WHERE id_menu = ?;
                         """;
-                for (final int deletion : deletions)
-                    wrapper.wrap(connection.prepareStatement(deleteStatementStr))
-                            .setInt(deletion)
-                            .execute();
+                int deletions = 0;
+                wrapper.wrap(connection.prepareStatement(deleteStatementStr));
+                for (final Deque<Integer> ids : current.values()) {
+                    for (final int id : ids) {
+                        wrapper.setInt(id).addBatch();
+                        deletions++;
+                    }
+                }
+                if (deletions > 0) wrapper.executeBatch();
+
+                if (!additions.isEmpty()) {
+                    // language=mariadb
+                    final String insertStatementStr = """
+                            INSERT INTO menu (id_meal, id_meal_name, uuid, date, course_number)
+                            VALUES (?, ?, ?, ?, ?);
+                            """;
+                    wrapper.wrap(connection.prepareStatement(insertStatementStr));
+                    for (final MenuEntrySkeleton skeleton : additions) {
+                        wrapper.setInt(skeleton.mealId())
+                                .setInt(skeleton.mealNameId())
+                                .setUUID(skeleton.uuid())
+                                .setLocalDate(date)
+                                .setNullInteger(skeleton.courseNumber())
+                                .addBatch();
+                    }
+                    wrapper.executeBatch();
+                }
 
                 // language=mariadb
-                final String insertStatementStr = """
-                        INSERT INTO menu (id_meal, id_meal_name, uuid, date, course_number)
-                        VALUES (?, ?, ?, ?, ?);
+                final String fingerprintStatementStr = """
+                        INSERT INTO menu_fingerprints (canteen, date, fingerprint, update_time)
+                        VALUES (?, ?, ?, ?)
+                        ON DUPLICATE KEY UPDATE fingerprint = VALUES(fingerprint),
+                                                update_time = VALUES(update_time);
                         """;
-                for (final MenuEntrySkeleton skeleton : additions) {
-                    wrapper.wrap(connection.prepareStatement(insertStatementStr))
-                            .setInt(skeleton.mealId())
-                            .setInt(skeleton.mealNameId())
-                            .setUUID(skeleton.uuid())
-                            .setLocalDate(date)
-                            .setNullInteger(skeleton.courseNumber())
-                            .execute();
-                }
+                wrapper.wrap(connection.prepareStatement(fingerprintStatementStr))
+                        .setCanteen(canteen)
+                        .setLocalDate(date)
+                        .setString(fingerprint)
+                        .setLocalDateTime(LocalDateTime.now())
+                        .execute();
+                wrapper.clear();
                 connection.commit();
+                return deletions + additions.size();
             } catch (final SQLException e) {
                 connection.rollback();
                 throw e;
             }
+        }
+    }
+
+    private static boolean deadlock(final @NotNull SQLException exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause())
+            if (cause instanceof SQLTransactionRollbackException) return true;
+        return false;
+    }
+
+    // fingerprints of the menu days of a canteen from a date on, keyed by date
+    public @NotNull Map<LocalDate, String> menuFingerprints(final @NotNull Canteen canteen,
+                                                            final @NotNull LocalDate fromDate) {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    SELECT date, fingerprint
+                    FROM menu_fingerprints
+                    WHERE canteen = ?
+                      AND date >= ?;
+                    """;
+            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setCanteen(canteen)
+                    .setLocalDate(fromDate)
+                    .executeQuery();
+            final Map<LocalDate, String> fingerprints = new HashMap<>();
+            while (result.next()) fingerprints.put(result.getLocalDate(), result.getString());
+            return fingerprints;
         } catch (final SQLException e) {
-            throw new RuntimeException("Could not update menu entries!", e);
+            throw new RuntimeException("Could not find menu fingerprints!", e);
         }
     }
 
+    private record MenuKey(int mealId, int mealNameId, @Nullable Integer courseNumber) {
+    }
+
     public @NotNull Optional<MenuEntry> menuEntryByUuid(final @NotNull UUID uuid) {
         try (final Connection connection = database.connection()) {
             // language=mariadb
             final String statementStr = """
                     SELECT menu.id_menu,
-                           menu.date,
-                           menu.course_number,
-                           meal_names.name,
                            meals.id_meal,
                            meals.uuid,
-                           meals.canteen,
                            meals.course,
-                           meals.description
+                           meals.canteen,
+                           meals.description,
+                           meal_names.name,
+                           menu.uuid,
+                           menu.date,
+                           menu.course_number
                     FROM menu,
                          meal_names,
                          meals
@@ -302,24 +319,10 @@ public enum MealDao implements Dao {
                       AND menu.id_meal = meal_names.id_meal;
                     """;
             final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
-                    .setString(uuid.toString())
+                    .setUUID(uuid)
                     .executeQuery();
             if (!result.next()) return Optional.empty();
-            return Optional.of(new MenuEntry.Builder()
-                    .id(result.getInt())
-                    .uuid(uuid)
-                    .date(result.getLocalDate())
-                    .courseNumber(result.getNullInteger())
-                    .mealName(result.getString())
-                    .meal(new Meal.Builder()
-                            .id(result.getInt())
-                            .uuid(result.getUUID())
-                            .canteen(result.getCanteen())
-                            .course(result.getCourse())
-                            .description(result.getString())
-                            .build())
-                    .build()
-            );
+            return Optional.of(menuEntryMapper.map(result));
         } catch (final SQLException e) {
             throw new RuntimeException("Could not find meal!", e);
         }
@@ -327,15 +330,17 @@ public enum MealDao implements Dao {
 
     // MEAL NAME
 
-    public boolean existsMealName(final @NotNull String name) {
+    public boolean existsMealName(final @NotNull Canteen canteen, final @NotNull String name) {
         try (final Connection connection = database.connection()) {
             // language=mariadb
             final String statementStr = """
                     SELECT 1
                     FROM meal_names
-                    WHERE name = ?;
+                    WHERE canteen = ?
+                      AND name = ?;
                     """;
             return StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setCanteen(canteen)
                     .setString(name)
                     .executeQuery()
                     .next();
@@ -344,15 +349,17 @@ public enum MealDao implements Dao {
         }
     }
 
-    public @NotNull Optional<MealName> mealNameByName(final @NotNull String name) {
+    public @NotNull Optional<MealName> mealNameByName(final @NotNull Canteen canteen, final @NotNull String name) {
         try (final Connection connection = database.connection()) {
             // language=mariadb
             final String statementStr = """
                     SELECT id_meal_name, id_meal
                     FROM meal_names
-                    WHERE name = ?;
+                    WHERE canteen = ?
+                      AND name = ?;
                     """;
             final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setCanteen(canteen)
                     .setString(name)
                     .executeQuery();
             if (!result.next()) return Optional.empty();
@@ -396,23 +403,103 @@ public enum MealDao implements Dao {
         }
     }
 
+    public @NotNull MealNameIndex mealNameIndex() {
+        return mealNameIndex;
+    }
+
+    // loads the most recent meal names into the index, does nothing when the index is already warm
+    public void warmMealNameIndex() {
+        if (mealNameIndex.size() > 0) return;
+        // language=mariadb
+        final String statementStr = """
+                SELECT meal_names.id_meal_name,
+                       meal_names.id_meal,
+                       meal_names.name,
+                       meals.id_meal,
+                       meals.uuid,
+                       meals.course,
+                       meals.canteen,
+                       meals.description
+                FROM meal_names,
+                     meals
+                WHERE meal_names.id_meal = meals.id_meal
+                ORDER BY meal_names.id_meal_name DESC
+                LIMIT ?;
+                """;
+        try (final Stream<MealNameIndex.NamedMeal> named = database.stream(
+                connection -> StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                        .setFetchSize(database.fetchSize())
+                        .setInt(mealNameIndex.capacity())
+                        .executeQuery(),
+                this::mapNamedMeal
+        )) {
+            named.forEach(mealNameIndex::put);
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not load meal names!", e);
+        }
+    }
+
+    public @NotNull Optional<MealNameIndex.NamedMeal> namedMealByName(final @NotNull Canteen canteen, final @NotNull String name) {
+        final MealNameIndex.NamedMeal indexed = mealNameIndex.get(canteen, name);
+        if (indexed != null) return Optional.of(indexed);
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    SELECT meal_names.id_meal_name,
+                           meal_names.id_meal,
+                           meal_names.name,
+                           meals.id_meal,
+                           meals.uuid,
+                           meals.course,
+                           meals.canteen,
+                           meals.description
+                    FROM meal_names,
+                         meals
+                    WHERE meal_names.canteen = ?
+                      AND meal_names.name = ?
+                      AND meal_names.id_meal = meals.id_meal;
+                    """;
+            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setCanteen(canteen)
+                    .setString(name)
+                    .executeQuery();
+            if (!result.next()) return Optional.empty();
+            final MealNameIndex.NamedMeal named = mapNamedMeal(result);
+            mealNameIndex.put(named);
+            return Optional.of(named);
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not find meal!", e);
+        }
+    }
+
+    private @NotNull MealNameIndex.NamedMeal mapNamedMeal(final @NotNull ResultWrapper result) throws SQLException {
+        return new MealNameIndex.NamedMeal(
+                mealNameMapper.map(result),
+                mealMapper.map(result, mealNameMapper.columns())
+        );
+    }
+
     public @NotNull MealName insertMealName(final @NotNull MealNameSkeleton skeleton) {
         try (final Connection connection = database.connection()) {
             // language=mariadb
             final String statementStr = """
-                    INSERT INTO meal_names (id_meal, name)
-                    VALUES (?, ?);
+                    INSERT INTO meal_names (id_meal, canteen, name)
+                    VALUES (?, ?, ?);
                     """;
             final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr, Statement.RETURN_GENERATED_KEYS))
                     .setInt(skeleton.mealId())
+                    .setCanteen(skeleton.canteen())
                     .setString(skeleton.name())
                     .executeGenerate();
             if (!result.next()) throw new RuntimeException("Id was not returned!");
-            return new MealName(
+            final MealName mealName = new MealName(
                     result.getInt(),
                     skeleton.mealId(),
                     skeleton.name()
             );
+            final Meal meal = mealNameIndex.meal(mealName.mealId());
+            if (meal != null) mealNameIndex.put(new MealNameIndex.NamedMeal(mealName, meal));
+            return mealName;
         } catch (final SQLException e) {
             throw new RuntimeException("Could not create meal name!", e);
         }
@@ -0,0 +1,106 @@
+package cz.jeme.programu.stolujemeapi.db.meal;
+
+import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+// least recently used meal names with their meals, meals and meal names are never updated so entries do not go stale
+// names are unique per canteen only, so they are keyed together with the canteen
+public final class MealNameIndex {
+    private final int capacity;
+    private final @NotNull Map<Key, NamedMeal> names;
+    // meals inserted before their first name, so that the name can be indexed right away
+    private final @NotNull Map<Integer, Meal> meals;
+    private final @NotNull LongAdder hits = new LongAdder();
+    private final @NotNull LongAdder misses = new LongAdder();
+
+    MealNameIndex(final int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Meal name index capacity must be positive!");
+        this.capacity = capacity;
+        names = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.@NotNull Entry<Key, NamedMeal> eldest) {
+                return size() > MealNameIndex.this.capacity;
+            }
+        };
+        meals = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.@NotNull Entry<Integer, Meal> eldest) {
+                return size() > MealNameIndex.this.capacity;
+            }
+        };
+    }
+
+    synchronized @Nullable NamedMeal get(final @NotNull Canteen canteen, final @NotNull String name) {
+        final NamedMeal named = names.get(new Key(canteen, name));
+        if (named == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return named;
+    }
+
+    synchronized void put(final @NotNull NamedMeal named) {
+        names.put(new Key(named.meal().canteen(), named.mealName().name()), named);
+        meals.put(named.meal().id(), named.meal());
+    }
+
+    synchronized void putMeal(final @NotNull Meal meal) {
+        meals.put(meal.id(), meal);
+    }
+
+    synchronized @Nullable Meal meal(final int mealId) {
+        return meals.get(mealId);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "MealNameIndex{" +
+               "size=" + size() +
+               ", capacity=" + capacity +
+               ", hits=" + hits() +
+               ", misses=" + misses() +
+               '}';
+    }
+
+    private record Key(
+            @NotNull Canteen canteen,
+            @NotNull String name
+    ) {
+    }
+
+    public record NamedMeal(
+            @NotNull MealName mealName,
+            @NotNull Meal meal
+    ) {
+        public NamedMeal {
+            Objects.requireNonNull(mealName, "mealName");
+            Objects.requireNonNull(meal, "meal");
+            if (mealName.mealId() != meal.id())
+                throw new IllegalArgumentException("Meal name does not belong to this meal!");
+        }
+    }
+}
@@ -1,24 +1,29 @@
 package cz.jeme.programu.stolujemeapi.db.meal;
 
+import cz.jeme.programu.stolujemeapi.canteen.Canteen;
 import cz.jeme.programu.stolujemeapi.db.Skeleton;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
 
+// the canteen must be the canteen of the meal, names are unique per canteen
 public record MealNameSkeleton(
         int mealId,
+        @NotNull Canteen canteen,
         @NotNull String name
 ) implements Skeleton {
     private MealNameSkeleton(final @NotNull Builder builder) {
         this(
                 Objects.requireNonNull(builder.mealId, "mealId"),
+                Objects.requireNonNull(builder.canteen, "canteen"),
                 Objects.requireNonNull(builder.name, "name")
         );
     }
 
     public static final class Builder implements Skeleton.Builder<Builder, MealNameSkeleton> {
         private @Nullable Integer mealId;
+        private @Nullable Canteen canteen;
         private @Nullable String name;
 
         public @NotNull Builder mealId(final int mealId) {
@@ -26,6 +31,11 @@ public record MealNameSkeleton(
             return this;
         }
 
+        public @NotNull Builder canteen(final @NotNull Canteen canteen) {
+            this.canteen = canteen;
+            return this;
+        }
+
         public @NotNull Builder name(final @NotNull String name) {
             this.name = name;
             return this;
@@ -0,0 +1,109 @@
+package cz.jeme.programu.stolujemeapi.db.meal;
+
+import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import cz.jeme.programu.stolujemeapi.db.Database;
+import cz.jeme.programu.stolujemeapi.db.RowMapper;
+import cz.jeme.programu.stolujemeapi.db.rating.RatingDao;
+import cz.jeme.programu.stolujemeapi.sql.ResultWrapper;
+import cz.jeme.programu.stolujemeapi.sql.StatementWrapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// assembles the whole menu of a user in one statement instead of one query per concern
+public enum MenuReadModel {
+    INSTANCE;
+
+    private final @NotNull Database database = Database.INSTANCE;
+    private final @NotNull RowMapper<MenuEntry> menuEntryMapper = RowMapper.of(MenuEntry.class);
+
+    public @NotNull Menu menu(final int userId,
+                              final @NotNull LocalDate fromDate,
+                              final @NotNull LocalDate toDate) {
+        if (fromDate.isAfter(toDate))
+            throw new IllegalArgumentException("From date is after to date!");
+        try (final Connection connection = database.connection()) {
+            // the left join keeps the user row, so the canteen is returned even for an empty menu
+            // language=mariadb
+            final String statementStr = """
+                    SELECT users.canteen,
+                           menu.id_menu,
+                           meals.id_meal,
+                           meals.uuid,
+                           meals.course,
+                           meals.canteen,
+                           meals.description,
+                           meal_names.name,
+                           menu.uuid,
+                           menu.date,
+                           menu.course_number,
+                           (SELECT AVG(ratings.rating)
+                            FROM ratings
+                            WHERE ratings.id_meal = meals.id_meal
+                              AND ratings.id_user = users.id_user),
+                           (SELECT AVG(ratings.rating)
+                            FROM ratings
+                            WHERE ratings.id_meal = meals.id_meal
+                              AND ratings.id_user <> users.id_user),
+                           (SELECT ratings.rating
+                            FROM ratings
+                            WHERE ratings.id_menu = menu.id_menu
+                              AND ratings.id_user = users.id_user)
+                    FROM users
+                             LEFT JOIN (menu
+                        JOIN meal_names ON menu.id_meal_name = meal_names.id_meal_name
+                        JOIN meals ON menu.id_meal = meals.id_meal)
+                                       ON meals.canteen = users.canteen
+                                           AND menu.date BETWEEN ? AND ?
+                    WHERE users.id_user = ?
+                    ORDER BY menu.date, menu.id_menu;
+                    """;
+            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setLocalDate(fromDate)
+                    .setLocalDate(toDate)
+                    .setInt(userId)
+                    .executeQuery();
+
+            Canteen canteen = null;
+            final List<Row> rows = new ArrayList<>();
+            while (result.next()) {
+                canteen = result.getCanteen();
+                if (result.getNullInteger() == null) continue; // the user row without any menu entries
+                // the mapped columns are skipped by the following reads
+                final MenuEntry entry = menuEntryMapper.map(result, 1);
+                final RatingDao.MealRatingData ratingData = new RatingDao.MealRatingData(
+                        result.getNullDouble(),
+                        result.getNullDouble()
+                );
+                rows.add(new Row(entry, ratingData, result.getNullInteger()));
+            }
+            if (canteen == null) throw new RuntimeException("Could not find user from session!");
+            return new Menu(canteen, rows);
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not find menu!", e);
+        }
+    }
+
+    public record Menu(
+            @NotNull Canteen canteen,
+            @NotNull List<Row> rows
+    ) {
+        public Menu {
+            Objects.requireNonNull(canteen, "canteen");
+            rows = List.copyOf(rows);
+        }
+    }
+
+    public record Row(
+            @NotNull MenuEntry entry,
+            @NotNull RatingDao.MealRatingData ratingData,
+            @Nullable Integer currentRating
+    ) {
+    }
+}
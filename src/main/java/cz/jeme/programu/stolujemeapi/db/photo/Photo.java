@@ -19,6 +19,12 @@ public record Photo(
         long fileSize,
         @NotNull LocalDateTime uploadedTime
 ) implements Entry {
+    public Photo {
+        // checked here so that rows mapped straight to this constructor are validated too
+        if (!file.exists())
+            throw new IllegalArgumentException("This file does not exist!");
+    }
+
     private Photo(final @NotNull Builder builder) {
         this(
                 Objects.requireNonNull(builder.id, "id"),
@@ -29,8 +35,6 @@ public record Photo(
                 Objects.requireNonNull(builder.fileSize, "fileSize"),
                 Objects.requireNonNull(builder.uploadedTime, "uploadedTime")
         );
-        if (!file.exists())
-            throw new IllegalArgumentException("This file does not exist!");
     }
 
     @ApiStatus.Internal
@@ -2,53 +2,35 @@ package cz.jeme.programu.stolujemeapi.db.photo;
 
 import cz.jeme.programu.stolujemeapi.db.Dao;
 import cz.jeme.programu.stolujemeapi.db.Database;
+import cz.jeme.programu.stolujemeapi.db.RowMapper;
 import cz.jeme.programu.stolujemeapi.sql.ResultWrapper;
 import cz.jeme.programu.stolujemeapi.sql.StatementWrapper;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
+import java.util.stream.Stream;
 
 public enum PhotoDao implements Dao {
     INSTANCE;
 
-    private final @NotNull Database database = Database.INSTANCE;
+    public static final int ERROR_LENGTH_MAX = 500;
 
-    @Override
-    public void init() {
-        try (final Connection connection = database.connection()) {
-            // language=mariadb
-            final String photosStatementStr = """
-                    CREATE TABLE IF NOT EXISTS photos
-                    (
-                        id_photo    MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
-                        id_meal     MEDIUMINT UNSIGNED   NOT NULL,
-                        FOREIGN KEY (id_meal) REFERENCES meals (id_meal),
-                        id_user     MEDIUMINT UNSIGNED   NOT NULL,
-                        FOREIGN KEY (id_user) REFERENCES users (id_user),
-                        uuid        UUID UNIQUE          NOT NULL,
-                        path        VARCHAR(1000) UNIQUE NOT NULL,
-                        file_size   BIGINT    UNSIGNED   NOT NULL,
-                        upload_time DATETIME             NOT NULL
-                    );
-                    """;
-            connection.prepareStatement(photosStatementStr).execute();
-        } catch (final SQLException e) {
-            throw new RuntimeException("Could not initialize photo data access object!", e);
-        }
-    }
+    private final @NotNull Database database = Database.INSTANCE;
+    private final @NotNull RowMapper<Photo> photoMapper = RowMapper.of(Photo.class);
+    private final @NotNull RowMapper<PhotoUpload> uploadMapper = RowMapper.of(PhotoUpload.class);
 
     public @NotNull Optional<Photo> photoByUuid(final @NotNull UUID uuid) {
         try (final Connection connection = database.connection()) {
             // language=mariadb
             final String statementStr = """
-                    SELECT id_photo, id_meal, id_user, path, upload_time
+                    SELECT id_photo, id_meal, id_user, uuid, path, file_size, upload_time
                     FROM photos
                     WHERE uuid = ?;
                     """;
@@ -56,15 +38,7 @@ public enum PhotoDao implements Dao {
                     .setUUID(uuid)
                     .executeQuery();
             if (!result.next()) return Optional.empty();
-            return Optional.of(new Photo.Builder()
-                    .id(result.getInt())
-                    .mealId(result.getInt())
-                    .userId(result.getInt())
-                    .uuid(uuid)
-                    .file(result.getFile())
-                    .uploadedTime(result.getLocalDateTime())
-                    .build()
-            );
+            return Optional.of(photoMapper.map(result));
         } catch (final SQLException e) {
             throw new RuntimeException("Could not find photo!", e);
         }
@@ -72,37 +46,42 @@ public enum PhotoDao implements Dao {
 
     public @NotNull Photo insertPhoto(final @NotNull PhotoSkeleton skeleton) {
         try (final Connection connection = database.connection()) {
-            // language=mariadb
-            final String statementStr = """
-                    INSERT INTO photos (id_meal, id_user, uuid, path, file_size, upload_time)
-                    VALUES (?, ?, ?, ?, ?, ?);
-                    """;
-            final long fileSize = skeleton.file().length();
-            final LocalDateTime creationTime = LocalDateTime.now();
-            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr, Statement.RETURN_GENERATED_KEYS))
-                    .setInt(skeleton.mealId())
-                    .setInt(skeleton.userId())
-                    .setUUID(skeleton.uuid())
-                    .setFile(skeleton.file())
-                    .setLong(fileSize)
-                    .setLocalDateTime(creationTime)
-                    .executeGenerate();
-
-            if (!result.next()) throw new RuntimeException("Id was not returned!");
-            return new Photo.Builder()
-                    .id(result.getInt())
-                    .mealId(skeleton.mealId())
-                    .userId(skeleton.userId())
-                    .uploadedTime(creationTime)
-                    .uuid(skeleton.uuid())
-                    .file(skeleton.file())
-                    .fileSize(fileSize)
-                    .build();
+            return insertPhoto(connection, skeleton);
         } catch (final SQLException e) {
             throw new RuntimeException("Could not create photo!", e);
         }
     }
 
+    private @NotNull Photo insertPhoto(final @NotNull Connection connection,
+                                       final @NotNull PhotoSkeleton skeleton) throws SQLException {
+        // language=mariadb
+        final String statementStr = """
+                INSERT INTO photos (id_meal, id_user, uuid, path, file_size, upload_time)
+                VALUES (?, ?, ?, ?, ?, ?);
+                """;
+        final long fileSize = skeleton.file().length();
+        final LocalDateTime creationTime = LocalDateTime.now();
+        final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr, Statement.RETURN_GENERATED_KEYS))
+                .setInt(skeleton.mealId())
+                .setInt(skeleton.userId())
+                .setUUID(skeleton.uuid())
+                .setFile(skeleton.file())
+                .setLong(fileSize)
+                .setLocalDateTime(creationTime)
+                .executeGenerate();
+
+        if (!result.next()) throw new RuntimeException("Id was not returned!");
+        return new Photo.Builder()
+                .id(result.getInt())
+                .mealId(skeleton.mealId())
+                .userId(skeleton.userId())
+                .uploadedTime(creationTime)
+                .uuid(skeleton.uuid())
+                .file(skeleton.file())
+                .fileSize(fileSize)
+                .build();
+    }
+
     public boolean deletePhotoByUuid(final @NotNull UUID uuid) {
         try (final Connection connection = database.connection()) {
             connection.setAutoCommit(false);
@@ -129,33 +108,244 @@ public enum PhotoDao implements Dao {
     }
 
     public @NotNull List<Photo> photosByMealId(final int mealId) {
+        try (final Stream<Photo> photos = streamPhotosByMealId(mealId)) {
+            return photos.toList();
+        }
+    }
+
+    // the stream holds a database connection until it is closed
+    public @NotNull Stream<Photo> streamPhotosByMealId(final int mealId) {
+        // language=mariadb
+        final String statementStr = """
+                SELECT id_photo, id_meal, id_user, uuid, path, file_size, upload_time
+                FROM photos
+                WHERE id_meal = ?;
+                """;
+        try {
+            return database.stream(
+                    connection -> StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                            .setFetchSize(database.fetchSize())
+                            .setInt(mealId)
+                            .executeQuery(),
+                    photoMapper::map
+            );
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not find photo!", e);
+        }
+    }
+
+    public @NotNull PhotoUpload insertUpload(final @NotNull PhotoUploadSkeleton skeleton) {
         try (final Connection connection = database.connection()) {
             // language=mariadb
             final String statementStr = """
-                    SELECT id_photo, id_user, uuid, path, file_size, upload_time
-                    FROM photos
-                    WHERE id_meal = ?;
+                    INSERT INTO photo_uploads (id_meal, id_user, uuid, status, staged_path, path, upload_time, update_time)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?);
+                    """;
+            final LocalDateTime creationTime = LocalDateTime.now();
+            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr, Statement.RETURN_GENERATED_KEYS))
+                    .setInt(skeleton.mealId())
+                    .setInt(skeleton.userId())
+                    .setUUID(skeleton.uuid())
+                    .setUploadStatus(PhotoUpload.Status.PENDING)
+                    .setFile(skeleton.stagedFile())
+                    .setFile(skeleton.file())
+                    .setLocalDateTime(creationTime)
+                    .setLocalDateTime(creationTime)
+                    .executeGenerate();
+
+            if (!result.next()) throw new RuntimeException("Id was not returned!");
+            return new PhotoUpload.Builder()
+                    .id(result.getInt())
+                    .mealId(skeleton.mealId())
+                    .userId(skeleton.userId())
+                    .uuid(skeleton.uuid())
+                    .status(PhotoUpload.Status.PENDING)
+                    .stagedFile(skeleton.stagedFile())
+                    .file(skeleton.file())
+                    .uploadedTime(creationTime)
+                    .updatedTime(creationTime)
+                    .build();
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not create photo upload!", e);
+        }
+    }
+
+    public @NotNull Optional<PhotoUpload> uploadByUuid(final @NotNull UUID uuid) {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    SELECT id_upload, id_meal, id_user, uuid, status, staged_path, path, upload_time, update_time, error
+                    FROM photo_uploads
+                    WHERE uuid = ?;
+                    """;
+            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setUUID(uuid)
+                    .executeQuery();
+            if (!result.next()) return Optional.empty();
+            return Optional.of(uploadMapper.map(result));
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not find photo upload!", e);
+        }
+    }
+
+    // oldest pending uploads first
+    public @NotNull List<PhotoUpload> pendingUploads(final int limit) {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    SELECT id_upload, id_meal, id_user, uuid, status, staged_path, path, upload_time, update_time, error
+                    FROM photo_uploads
+                    WHERE status = ?
+                    ORDER BY upload_time
+                    LIMIT ?;
+                    """;
+            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setUploadStatus(PhotoUpload.Status.PENDING)
+                    .setInt(limit)
+                    .executeQuery();
+            final List<PhotoUpload> uploads = new ArrayList<>();
+            while (result.next()) uploads.add(uploadMapper.map(result));
+            return uploads;
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not find pending photo uploads!", e);
+        }
+    }
+
+    // the staged originals still waiting to be encoded, any other staged file is left over
+    public @NotNull Set<File> pendingStagedFiles() {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    SELECT staged_path
+                    FROM photo_uploads
+                    WHERE status = ?;
+                    """;
+            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setUploadStatus(PhotoUpload.Status.PENDING)
+                    .executeQuery();
+            final Set<File> files = new HashSet<>();
+            while (result.next()) files.add(result.getFile());
+            return files;
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not find staged photo files!", e);
+        }
+    }
+
+    // pending and failed uploads of a user to a meal, published ones are listed as photos
+    public @NotNull List<PhotoUpload> unpublishedUploadsByMealIdUserId(final int mealId, final int userId) {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    SELECT id_upload, id_meal, id_user, uuid, status, staged_path, path, upload_time, update_time, error
+                    FROM photo_uploads
+                    WHERE id_meal = ?
+                      AND id_user = ?
+                      AND status != ?
+                    ORDER BY upload_time;
                     """;
             final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
                     .setInt(mealId)
+                    .setInt(userId)
+                    .setUploadStatus(PhotoUpload.Status.PUBLISHED)
                     .executeQuery();
+            final List<PhotoUpload> uploads = new ArrayList<>();
+            while (result.next()) uploads.add(uploadMapper.map(result));
+            return uploads;
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not find photo uploads!", e);
+        }
+    }
 
-            final List<Photo> photos = new ArrayList<>();
-            while (result.next()) {
-                photos.add(new Photo.Builder()
-                        .id(result.getInt())
-                        .userId(result.getInt())
-                        .mealId(mealId)
-                        .uuid(result.getUUID())
-                        .file(result.getFile())
-                        .fileSize(result.getLong())
-                        .uploadedTime(result.getLocalDateTime())
-                        .build()
-                );
+    // inserts the encoded photo and marks the upload as published in one transaction
+    public @NotNull Photo publishUpload(final @NotNull PhotoUpload upload) {
+        try (final Connection connection = database.connection()) {
+            connection.setAutoCommit(false);
+            try {
+                final Photo photo = insertPhoto(connection, new PhotoSkeleton.Builder()
+                        .mealId(upload.mealId())
+                        .userId(upload.userId())
+                        .uuid(upload.uuid())
+                        .file(upload.file())
+                        .build());
+                updateUploadStatus(connection, upload, PhotoUpload.Status.PUBLISHED, null);
+                connection.commit();
+                return photo;
+            } catch (final SQLException e) {
+                connection.rollback();
+                throw e;
             }
-            return photos;
         } catch (final SQLException e) {
-            throw new RuntimeException("Could not find photo!", e);
+            throw new RuntimeException("Could not publish photo upload!", e);
+        }
+    }
+
+    public void failUpload(final @NotNull PhotoUpload upload, final @NotNull String error) {
+        try (final Connection connection = database.connection()) {
+            updateUploadStatus(
+                    connection,
+                    upload,
+                    PhotoUpload.Status.FAILED,
+                    error.length() > PhotoDao.ERROR_LENGTH_MAX ? error.substring(0, PhotoDao.ERROR_LENGTH_MAX) : error
+            );
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not mark photo upload as failed!", e);
+        }
+    }
+
+    private void updateUploadStatus(final @NotNull Connection connection,
+                                    final @NotNull PhotoUpload upload,
+                                    final @NotNull PhotoUpload.Status status,
+                                    final @Nullable String error) throws SQLException {
+        // language=mariadb
+        final String statementStr = """
+                UPDATE photo_uploads
+                SET status      = ?,
+                    update_time = ?,
+                    error       = ?
+                WHERE id_upload = ?;
+                """;
+        final StatementWrapper wrapper = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                .setUploadStatus(status)
+                .setLocalDateTime(LocalDateTime.now());
+        if (error == null) wrapper.setNull(Types.VARCHAR);
+        else wrapper.setString(error);
+        wrapper.setInt(upload.id()).executeUpdate();
+    }
+
+    public boolean deleteUploadByUuid(final @NotNull UUID uuid) {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    DELETE
+                    FROM photo_uploads
+                    WHERE uuid = ?;
+                    """;
+            return StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                           .setUUID(uuid)
+                           .executeUpdate() > 0;
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not delete photo upload!", e);
+        }
+    }
+
+    // deletes at most limit uploads that were published or failed before the cutoff
+    public int deleteFinishedUploads(final @NotNull LocalDateTime cutoff, final int limit) {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    DELETE
+                    FROM photo_uploads
+                    WHERE status != ?
+                      AND update_time < ?
+                    LIMIT ?;
+                    """;
+            return StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setUploadStatus(PhotoUpload.Status.PENDING)
+                    .setLocalDateTime(cutoff)
+                    .setInt(limit)
+                    .executeUpdate();
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not delete finished photo uploads!", e);
         }
     }
 }
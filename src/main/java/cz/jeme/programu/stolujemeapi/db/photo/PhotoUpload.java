@@ -0,0 +1,115 @@
+package cz.jeme.programu.stolujemeapi.db.photo;
+
+import cz.jeme.programu.stolujemeapi.db.Entry;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+public record PhotoUpload(
+        int id,
+        int mealId,
+        int userId,
+        @NotNull UUID uuid,
+        @NotNull Status status,
+        @NotNull File stagedFile,
+        @NotNull File file,
+        @NotNull LocalDateTime uploadedTime,
+        @NotNull LocalDateTime updatedTime,
+        @Nullable String error
+) implements Entry {
+    private PhotoUpload(final @NotNull Builder builder) {
+        this(
+                Objects.requireNonNull(builder.id, "id"),
+                Objects.requireNonNull(builder.mealId, "mealId"),
+                Objects.requireNonNull(builder.userId, "userId"),
+                Objects.requireNonNull(builder.uuid, "uuid"),
+                Objects.requireNonNull(builder.status, "status"),
+                Objects.requireNonNull(builder.stagedFile, "stagedFile"),
+                Objects.requireNonNull(builder.file, "file"),
+                Objects.requireNonNull(builder.uploadedTime, "uploadedTime"),
+                Objects.requireNonNull(builder.updatedTime, "updatedTime"),
+                builder.error
+        );
+    }
+
+    public enum Status {
+        PENDING,
+        PUBLISHED,
+        FAILED
+    }
+
+    @ApiStatus.Internal
+    public static final class Builder implements Entry.Builder<Builder, PhotoUpload> {
+        private @Nullable Integer id;
+        private @Nullable Integer mealId;
+        private @Nullable Integer userId;
+        private @Nullable UUID uuid;
+        private @Nullable Status status;
+        private @Nullable File stagedFile;
+        private @Nullable File file;
+        private @Nullable LocalDateTime uploadedTime;
+        private @Nullable LocalDateTime updatedTime;
+        private @Nullable String error;
+
+        @Override
+        public @NotNull PhotoUpload build() {
+            return new PhotoUpload(this);
+        }
+
+        @Override
+        public @NotNull Builder id(final int id) {
+            this.id = id;
+            return this;
+        }
+
+        public @NotNull Builder mealId(final int mealId) {
+            this.mealId = mealId;
+            return this;
+        }
+
+        public @NotNull Builder userId(final int userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        public @NotNull Builder uuid(final @Nullable UUID uuid) {
+            this.uuid = uuid;
+            return this;
+        }
+
+        public @NotNull Builder status(final @Nullable Status status) {
+            this.status = status;
+            return this;
+        }
+
+        public @NotNull Builder stagedFile(final @Nullable File stagedFile) {
+            this.stagedFile = stagedFile;
+            return this;
+        }
+
+        public @NotNull Builder file(final @Nullable File file) {
+            this.file = file;
+            return this;
+        }
+
+        public @NotNull Builder uploadedTime(final @Nullable LocalDateTime uploadedTime) {
+            this.uploadedTime = uploadedTime;
+            return this;
+        }
+
+        public @NotNull Builder updatedTime(final @Nullable LocalDateTime updatedTime) {
+            this.updatedTime = updatedTime;
+            return this;
+        }
+
+        public @NotNull Builder error(final @Nullable String error) {
+            this.error = error;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package cz.jeme.programu.stolujemeapi.db.photo;
+
+import cz.jeme.programu.stolujemeapi.db.Skeleton;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.Objects;
+import java.util.UUID;
+
+public record PhotoUploadSkeleton(
+        int mealId,
+        int userId,
+        @NotNull UUID uuid,
+        @NotNull File stagedFile,
+        @NotNull File file
+) implements Skeleton {
+    private PhotoUploadSkeleton(final @NotNull Builder builder) {
+        this(
+                Objects.requireNonNull(builder.mealId, "mealId"),
+                Objects.requireNonNull(builder.userId, "userId"),
+                builder.uuid,
+                Objects.requireNonNull(builder.stagedFile, "stagedFile"),
+                Objects.requireNonNull(builder.file, "file")
+        );
+    }
+
+    public static final class Builder implements Skeleton.Builder<Builder, PhotoUploadSkeleton> {
+        private @Nullable Integer mealId;
+        private @Nullable Integer userId;
+        private @NotNull UUID uuid = UUID.randomUUID();
+        private @Nullable File stagedFile;
+        private @Nullable File file;
+
+        @Override
+        public @NotNull PhotoUploadSkeleton build() {
+            return new PhotoUploadSkeleton(this);
+        }
+
+        public @NotNull Builder mealId(final int mealId) {
+            this.mealId = mealId;
+            return this;
+        }
+
+        public @NotNull Builder userId(final int userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        public @NotNull Builder uuid(final @NotNull UUID uuid) {
+            this.uuid = uuid;
+            return this;
+        }
+
+        public @NotNull Builder stagedFile(final @NotNull File stagedFile) {
+            if (!stagedFile.exists()) throw new IllegalArgumentException("This file does not exist!");
+            this.stagedFile = stagedFile;
+            return this;
+        }
+
+        // the encoded photo, it is created once the upload is processed
+        public @NotNull Builder file(final @NotNull File file) {
+            this.file = file;
+            return this;
+        }
+    }
+}
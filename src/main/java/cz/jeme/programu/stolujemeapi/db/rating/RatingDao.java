@@ -15,39 +15,16 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public enum RatingDao implements Dao {
     INSTANCE;
 
     private final @NotNull Database database = Database.INSTANCE;
 
-    @Override
-    public void init() {
-        try (final Connection connection = database.connection()) {
-            // language=mariadb
-            final String ratingsStatementStr = """
-                    CREATE TABLE IF NOT EXISTS ratings
-                    (
-                        id_rating   INT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
-                        id_meal     MEDIUMINT UNSIGNED NOT NULL,
-                        FOREIGN KEY (id_meal) REFERENCES meals (id_meal),
-                        id_menu     MEDIUMINT UNSIGNED NOT NULL,
-                        FOREIGN KEY (id_menu) REFERENCES menu (id_menu),
-                        id_user     MEDIUMINT UNSIGNED NOT NULL,
-                        FOREIGN KEY (id_user) REFERENCES users (id_user),
-                        UNIQUE KEY (id_menu, id_user),
-                        rating      TINYINT UNSIGNED   NOT NULL,
-                        CHECK (rating BETWEEN 1 AND 5),
-                        rating_time DATETIME           NOT NULL
-                    );
-                    """;
-            connection.prepareStatement(ratingsStatementStr).execute();
-        } catch (final SQLException e) {
-            throw new RuntimeException("Could not initialize rating data access object!", e);
-        }
-    }
-
     private boolean existsRatingUserIdMenuId(final int userId,
                                              final int menuId) {
         try (final Connection connection = database.connection()) {
@@ -135,27 +112,33 @@ public enum RatingDao implements Dao {
     }
 
     public @NotNull Map<UUID, Double> ratingsByUserId(final int userId) {
-        try (final Connection connection = database.connection()) {
-            // language=mariadb
-            final String statementStr = """
-                    SELECT meals.uuid, AVG(ratings.rating)
-                    FROM ratings,
-                         meals
-                    WHERE ratings.id_user = ?
-                      AND ratings.id_meal = meals.id_meal
-                    GROUP BY 1;
-                    """;
-            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
-                    .setInt(userId)
-                    .executeQuery();
-            final Map<UUID, Double> ratings = new HashMap<>();
-            while (result.next()) {
-                ratings.put(
-                        result.getUUID(),
-                        result.getDouble()
-                );
-            }
-            return ratings;
+        try (final Stream<Map.Entry<UUID, Double>> ratings = streamRatingsByUserId(userId)) {
+            return ratings.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        }
+    }
+
+    // average rating per meal uuid, the stream holds a database connection until it is closed
+    public @NotNull Stream<Map.Entry<UUID, Double>> streamRatingsByUserId(final int userId) {
+        // language=mariadb
+        final String statementStr = """
+                SELECT meals.uuid, AVG(ratings.rating)
+                FROM ratings,
+                     meals
+                WHERE ratings.id_user = ?
+                  AND ratings.id_meal = meals.id_meal
+                GROUP BY 1;
+                """;
+        try {
+            return database.stream(
+                    connection -> StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                            .setFetchSize(database.fetchSize())
+                            .setInt(userId)
+                            .executeQuery(),
+                    result -> Map.entry(
+                            Objects.requireNonNull(result.getUUID(), "uuid"),
+                            result.getDouble()
+                    )
+            );
         } catch (final SQLException e) {
             throw new RuntimeException("Could not find ratings!", e);
         }
@@ -0,0 +1,118 @@
+package cz.jeme.programu.stolujemeapi.db.user;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class SessionCache {
+    private final boolean enabled;
+    private final int capacity;
+    private final long ttl; // nanoseconds
+    private final @NotNull ConcurrentMap<String, CachedSession> sessions = new ConcurrentHashMap<>();
+    // bumped on every invalidation, so that a lookup racing a log-out can not cache the ended session
+    private final @NotNull AtomicLong generation = new AtomicLong();
+    private final @NotNull LongAdder hits = new LongAdder();
+    private final @NotNull LongAdder misses = new LongAdder();
+
+    SessionCache(final boolean enabled, final int capacity, final @NotNull Duration ttl) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Session cache capacity must be positive!");
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.ttl = ttl.toNanos();
+    }
+
+    @Nullable
+    Session get(final @NotNull String token) {
+        if (!enabled) return null;
+        final CachedSession cached = sessions.get(token);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        if (cached.deadline() - System.nanoTime() <= 0) {
+            sessions.remove(token, cached);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached.session();
+    }
+
+    // take before reading the session from the database and pass to put
+    long stamp() {
+        return generation.get();
+    }
+
+    void put(final @NotNull Session session, final long stamp) {
+        if (!enabled || generation.get() != stamp) return;
+        final long now = System.nanoTime();
+        // never keep a session past its own expiration
+        final long remaining = Duration.between(LocalDateTime.now(), session.expirationTime()).toNanos();
+        final long lifetime = Math.min(ttl, remaining);
+        if (lifetime <= 0) return;
+        if (sessions.size() >= capacity) evict(now);
+        sessions.put(session.token(), new CachedSession(session, now + lifetime));
+        // an invalidation may have slipped in between the check and the put
+        if (generation.get() != stamp) sessions.remove(session.token());
+    }
+
+    void invalidate(final int sessionId) {
+        generation.incrementAndGet();
+        sessions.values().removeIf(cached -> cached.session().id() == sessionId);
+    }
+
+    private void evict(final long now) {
+        sessions.values().removeIf(cached -> cached.deadline() - now <= 0);
+        // still full, drop a tenth of the entries so that the next inserts do not have to scan again
+        final int target = capacity - Math.max(1, capacity / 10);
+        final Iterator<CachedSession> iterator = sessions.values().iterator();
+        while (sessions.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public double hitRatio() {
+        final long hits = hits();
+        final long total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "SessionCache{" +
+               "enabled=" + enabled +
+               ", size=" + size() +
+               ", hits=" + hits() +
+               ", misses=" + misses() +
+               ", hitRatio=" + hitRatio() +
+               '}';
+    }
+
+    private record CachedSession(@NotNull Session session, long deadline) {
+    }
+}
@@ -0,0 +1,89 @@
+package cz.jeme.programu.stolujemeapi.db.user;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// ids of sessions ended before their signed tokens expire, synced from the database
+// so that a log-out on another instance is honoured after at most one sync period
+public final class SessionRevocations {
+    private final @NotNull Loader loader;
+    private final @NotNull Duration period;
+    // sorted, replaced as a whole on every sync
+    private volatile int @NotNull [] synced = new int[0];
+    // revoked on this instance since the last sync that saw them
+    private final @NotNull Set<Integer> local = ConcurrentHashMap.newKeySet();
+    private final @NotNull LongAdder syncs = new LongAdder();
+    private final @NotNull ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "session-revocation-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final @NotNull Logger logger = LoggerFactory.getLogger(getClass());
+
+    SessionRevocations(final @NotNull Loader loader, final @NotNull Duration period) {
+        if (period.isNegative() || period.isZero())
+            throw new IllegalArgumentException("Session revocation sync period must be positive!");
+        this.loader = loader;
+        this.period = period;
+    }
+
+    void start() {
+        sync();
+        final long millis = period.toMillis();
+        syncer.scheduleWithFixedDelay(this::sync, millis, millis, TimeUnit.MILLISECONDS);
+        logger.info("Session revocation sync started (every {} ms, {} revoked)", millis, size());
+    }
+
+    boolean revoked(final int sessionId) {
+        return local.contains(sessionId) || Arrays.binarySearch(synced, sessionId) >= 0;
+    }
+
+    void revoke(final int sessionId) {
+        local.add(sessionId);
+    }
+
+    private void sync() {
+        try {
+            final int[] loaded = loader.load();
+            Arrays.sort(loaded);
+            synced = loaded;
+            // local revocations are only dropped once the database has them, a revocation racing the sync stays
+            local.removeIf(id -> Arrays.binarySearch(loaded, id) >= 0);
+            syncs.increment();
+        } catch (final RuntimeException e) {
+            logger.error("Could not sync session revocations!", e);
+        }
+    }
+
+    public int size() {
+        return synced.length + local.size();
+    }
+
+    public long syncs() {
+        return syncs.sum();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "SessionRevocations{" +
+               "size=" + size() +
+               ", syncs=" + syncs() +
+               ", period=" + period +
+               '}';
+    }
+
+    @FunctionalInterface
+    interface Loader {
+        int @NotNull [] load();
+    }
+}
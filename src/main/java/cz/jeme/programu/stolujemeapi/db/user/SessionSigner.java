@@ -0,0 +1,110 @@
+package cz.jeme.programu.stolujemeapi.db.user;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Optional;
+
+// stateless session tokens: payload.signature, the payload carries everything needed to authenticate
+public final class SessionSigner {
+    public static final @NotNull String ALGORITHM = "HmacSHA256";
+    public static final int KEY_LENGTH_MIN_BYTES = 32;
+    public static final char SEPARATOR = '.';
+    // session id, user id, creation and expiration epoch seconds
+    private static final int PAYLOAD_BYTES = Integer.BYTES * 2 + Long.BYTES * 2;
+    private static final int SIGNATURE_BYTES = 32;
+    public static final int TOKEN_LENGTH = SessionSigner.unpaddedBase64Length(SessionSigner.PAYLOAD_BYTES)
+                                           + 1
+                                           + SessionSigner.unpaddedBase64Length(SessionSigner.SIGNATURE_BYTES);
+
+    private static final @NotNull Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final @NotNull Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final @NotNull ZoneId zone = ZoneId.systemDefault();
+    // macs are not thread safe
+    private final @NotNull ThreadLocal<Mac> mac;
+
+    SessionSigner(final byte @NotNull [] key) {
+        if (key.length < SessionSigner.KEY_LENGTH_MIN_BYTES)
+            throw new IllegalArgumentException("Session signing key must be at least %d bytes long!"
+                    .formatted(SessionSigner.KEY_LENGTH_MIN_BYTES));
+        final SecretKeySpec spec = new SecretKeySpec(key, SessionSigner.ALGORITHM);
+        mac = ThreadLocal.withInitial(() -> {
+            try {
+                final Mac instance = Mac.getInstance(SessionSigner.ALGORITHM);
+                instance.init(spec);
+                return instance;
+            } catch (final NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new RuntimeException("Could not create session signature mac!", e);
+            }
+        });
+        mac.get(); // fail on startup rather than on the first request
+    }
+
+    // the session keeps its id and times, its token is replaced with the signed one
+    @NotNull
+    Session sign(final @NotNull Session session) {
+        final ByteBuffer payload = ByteBuffer.allocate(SessionSigner.PAYLOAD_BYTES)
+                .putInt(session.id())
+                .putInt(session.userId())
+                .putLong(session.creationTime().atZone(zone).toEpochSecond())
+                .putLong(session.expirationTime().atZone(zone).toEpochSecond());
+        final String encoded = SessionSigner.ENCODER.encodeToString(payload.array());
+        return new Session.Builder()
+                .id(session.id())
+                .userId(session.userId())
+                .creationTime(session.creationTime())
+                .expirationTime(session.expirationTime())
+                .token(encoded + SessionSigner.SEPARATOR + SessionSigner.ENCODER.encodeToString(signature(encoded)))
+                .build();
+    }
+
+    // empty when the token is malformed or its signature does not match, expiration is checked by the caller
+    @NotNull
+    Optional<Session> verify(final @NotNull String token) {
+        final int separator = token.indexOf(SessionSigner.SEPARATOR);
+        if (token.length() != SessionSigner.TOKEN_LENGTH || separator == -1) return Optional.empty();
+        final String encoded = token.substring(0, separator);
+        final byte[] payloadBytes;
+        final byte[] signature;
+        try {
+            payloadBytes = SessionSigner.DECODER.decode(encoded);
+            signature = SessionSigner.DECODER.decode(token.substring(separator + 1));
+        } catch (final IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (payloadBytes.length != SessionSigner.PAYLOAD_BYTES) return Optional.empty();
+        if (!MessageDigest.isEqual(signature, signature(encoded))) return Optional.empty();
+        final ByteBuffer payload = ByteBuffer.wrap(payloadBytes);
+        return Optional.of(new Session.Builder()
+                .id(payload.getInt())
+                .userId(payload.getInt())
+                .creationTime(LocalDateTime.ofInstant(Instant.ofEpochSecond(payload.getLong()), zone))
+                .expirationTime(LocalDateTime.ofInstant(Instant.ofEpochSecond(payload.getLong()), zone))
+                .token(token)
+                .build());
+    }
+
+    // opaque tokens are standard base64, which never contains the separator
+    public static boolean signed(final @NotNull String token) {
+        return token.length() == SessionSigner.TOKEN_LENGTH && token.indexOf(SessionSigner.SEPARATOR) != -1;
+    }
+
+    private byte @NotNull [] signature(final @NotNull String encoded) {
+        return mac.get().doFinal(encoded.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static int unpaddedBase64Length(final int bytes) {
+        return (bytes * 4 + 2) / 3;
+    }
+}
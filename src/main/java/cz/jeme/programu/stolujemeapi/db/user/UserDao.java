@@ -1,88 +1,54 @@
 package cz.jeme.programu.stolujemeapi.db.user;
 
-import cz.jeme.programu.stolujemeapi.db.CryptoUtils;
+import cz.jeme.programu.stolujemeapi.EnvVar;
 import cz.jeme.programu.stolujemeapi.db.Dao;
 import cz.jeme.programu.stolujemeapi.db.Database;
+import cz.jeme.programu.stolujemeapi.db.RowMapper;
 import cz.jeme.programu.stolujemeapi.rest.control.UserController;
 import cz.jeme.programu.stolujemeapi.sql.ResultWrapper;
 import cz.jeme.programu.stolujemeapi.sql.StatementWrapper;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 public enum UserDao implements Dao {
     INSTANCE;
 
     private final @NotNull Database database = Database.INSTANCE;
-
-    @Override
-    public void init() {
-        try (final Connection connection = database.connection()) {
-            // language=mariadb
-            final String registrationsStatementStr = """
-                    CREATE TABLE IF NOT EXISTS registrations
-                    (
-                        id_registration MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
-                        creation_time   DATETIME    NOT NULL,
-                        expiration_time DATETIME    NOT NULL,
-                        email           VARCHAR(%d) NOT NULL,
-                        name            VARCHAR(%d) NOT NULL,
-                        canteen         VARCHAR(30) NOT NULL,
-                        password_hash   VARCHAR(%d) NOT NULL,
-                        password_salt   VARCHAR(%d) NOT NULL,
-                        code            VARCHAR(%d) NOT NULL UNIQUE
-                    );
-                    """
-                    .formatted(
-                            UserController.EMAIL_LENGTH_MAX,
-                            UserController.NAME_LENGTH_MAX,
-                            CryptoUtils.KEY_LENGTH_BASE64,
-                            CryptoUtils.SALT_LENGTH_BASE64,
-                            CryptoUtils.VERIFICATION_LENGTH_BASE64
-                    );
-            connection.prepareStatement(registrationsStatementStr).execute();
-            // language=mariadb
-            final String usersStatementStr = """
-                    CREATE TABLE IF NOT EXISTS users
-                    (
-                        id_user         MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
-                        id_registration MEDIUMINT UNSIGNED UNIQUE NOT NULL,
-                        FOREIGN KEY (id_registration) REFERENCES registrations (id_registration),
-                        email           VARCHAR(%d)               NOT NULL UNIQUE,
-                        name            VARCHAR(%d)               NOT NULL UNIQUE,
-                        canteen         VARCHAR(30)               NOT NULL,
-                        creation_time   DATETIME                  NOT NULL,
-                        password_hash   VARCHAR(%d)               NOT NULL,
-                        password_salt   VARCHAR(%d)               NOT NULL
-                    );
-                    """
-                    .formatted(
-                            UserController.EMAIL_LENGTH_MAX,
-                            UserController.NAME_LENGTH_MAX,
-                            CryptoUtils.KEY_LENGTH_BASE64,
-                            CryptoUtils.SALT_LENGTH_BASE64
-                    );
-            connection.prepareStatement(usersStatementStr).execute();
-            // language=mariadb
-            final String sessionsStatementStr = """
-                    CREATE TABLE IF NOT EXISTS sessions
-                    (
-                        id_session      MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
-                        id_user         MEDIUMINT UNSIGNED NOT NULL,
-                        FOREIGN KEY (id_user) REFERENCES users (id_user),
-                        creation_time   DATETIME           NOT NULL,
-                        expiration_time DATETIME           NOT NULL,
-                        token           VARCHAR(%d)        NOT NULL UNIQUE
-                    );
-                    """
-                    .formatted(CryptoUtils.SESSION_LENGTH_BASE64);
-            connection.prepareStatement(sessionsStatementStr).execute();
-        } catch (final SQLException e) {
-            throw new RuntimeException("Could not initialize user data access object!", e);
+    private final @NotNull RowMapper<Session> sessionMapper = RowMapper.of(Session.class);
+    private final @NotNull SessionCache sessionCache = new SessionCache(
+            EnvVar.SESSION_CACHE_ENABLED.getBoolean(true),
+            EnvVar.SESSION_CACHE_SIZE.getInt(10_000),
+            EnvVar.SESSION_CACHE_TTL.getDuration(Duration.ofMinutes(5))
+    );
+    // null when sessions use opaque tokens looked up in the database
+    private final @Nullable SessionSigner sessionSigner = EnvVar.SESSION_TOKENS_SIGNED.getBoolean(false)
+            ? new SessionSigner(UserDao.sessionTokenSecret())
+            : null;
+    private final @NotNull SessionRevocations sessionRevocations = new SessionRevocations(
+            this::revokedSessionIds,
+            EnvVar.SESSION_REVOCATION_SYNC.getDuration(Duration.ofSeconds(30))
+    );
+
+    private static byte @NotNull [] sessionTokenSecret() {
+        final String secret = EnvVar.SESSION_TOKEN_SECRET.get();
+        if (secret == null)
+            throw new IllegalArgumentException("Signed session tokens need the %s environment variable!"
+                    .formatted(EnvVar.SESSION_TOKEN_SECRET.name()));
+        try {
+            return Base64.getDecoder().decode(secret);
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException("Environment variable %s must be base64!"
+                    .formatted(EnvVar.SESSION_TOKEN_SECRET.name()), e);
         }
     }
 
@@ -351,13 +317,57 @@ public enum UserDao implements Dao {
         }
     }
 
+    // deletes at most limit registrations that expired before the cutoff and were never verified
+    public int deleteExpiredRegistrations(final @NotNull LocalDateTime cutoff, final int limit) {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    DELETE
+                    FROM registrations
+                    WHERE expiration_time < ?
+                      AND NOT EXISTS (SELECT 1 FROM users WHERE users.id_registration = registrations.id_registration)
+                    LIMIT ?;
+                    """;
+            return StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setLocalDateTime(cutoff)
+                    .setInt(limit)
+                    .executeUpdate();
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not delete expired registrations!", e);
+        }
+    }
+
     // SESSION
 
+    public @NotNull SessionCache sessionCache() {
+        return sessionCache;
+    }
+
+    public boolean signedSessions() {
+        return sessionSigner != null;
+    }
+
+    public @NotNull SessionRevocations sessionRevocations() {
+        return sessionRevocations;
+    }
+
+    @ApiStatus.Internal
+    public void startSessionRevocationSync() {
+        if (sessionSigner != null) sessionRevocations.start();
+    }
+
     public @NotNull Optional<Session> sessionByToken(final @NotNull String token) {
+        // signed tokens are verified in memory, only opaque tokens issued before are looked up
+        if (sessionSigner != null && SessionSigner.signed(token))
+            return sessionSigner.verify(token)
+                    .filter(session -> !sessionRevocations.revoked(session.id()));
+        final Session cached = sessionCache.get(token);
+        if (cached != null) return Optional.of(cached);
+        final long stamp = sessionCache.stamp();
         try (final Connection connection = database.connection()) {
             // language=mariadb
             final String statementStr = """
-                    SELECT id_session, id_user, creation_time, expiration_time
+                    SELECT id_session, id_user, creation_time, expiration_time, token
                     FROM sessions
                     WHERE token = ?;
                     """;
@@ -365,13 +375,9 @@ public enum UserDao implements Dao {
                     .setString(token)
                     .executeQuery();
             if (!result.next()) return Optional.empty();
-            return Optional.of(new Session.Builder()
-                    .id(result.getInt())
-                    .userId(result.getInt())
-                    .creationTime(result.getLocalDateTime())
-                    .expirationTime(result.getLocalDateTime())
-                    .token(token)
-                    .build());
+            final Session session = sessionMapper.map(result);
+            sessionCache.put(session, stamp);
+            return Optional.of(session);
         } catch (final SQLException e) {
             throw new RuntimeException("Could not get session!", e);
         }
@@ -397,18 +403,40 @@ public enum UserDao implements Dao {
                     .executeGenerate();
 
             if (!result.next()) throw new RuntimeException("Id was not returned!");
-            return new Session.Builder()
+            final Session session = new Session.Builder()
                     .id(result.getInt())
                     .userId(skeleton.userId())
                     .creationTime(creationTime)
                     .expirationTime(expirationTime)
                     .token(skeleton.token())
                     .build();
+            if (sessionSigner != null) return sessionSigner.sign(session);
+            // a new session is usually used right away
+            sessionCache.put(session, sessionCache.stamp());
+            return session;
         } catch (final SQLException e) {
             throw new RuntimeException("Could not create session!", e);
         }
     }
 
+    public boolean updateUserPassword(final int id, final @NotNull String passwordHash, final @NotNull String passwordSalt) {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    UPDATE users
+                    SET password_hash = ?, password_salt = ?
+                    WHERE id_user = ?;
+                    """;
+            return StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setString(passwordHash)
+                    .setString(passwordSalt)
+                    .setInt(id)
+                    .executeUpdate() > 0;
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not update user password!", e);
+        }
+    }
+
     public boolean endSession(final int id) {
         try (final Connection connection = database.connection()) {
             // language=mariadb
@@ -417,11 +445,64 @@ public enum UserDao implements Dao {
                     SET expiration_time = CURRENT_TIMESTAMP
                     WHERE id_session = ?;
                     """;
-            return StatementWrapper.wrapper(connection.prepareStatement(statementStr))
-                           .setInt(id)
-                           .executeUpdate() > 0;
+            final boolean ended = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                                          .setInt(id)
+                                          .executeUpdate() > 0;
+            sessionCache.invalidate(id);
+            sessionRevocations.revoke(id);
+            return ended;
         } catch (final SQLException e) {
             throw new RuntimeException("Could not end session!", e);
         }
     }
-}
\ No newline at end of file
+
+    // sessions ended early whose signed tokens would otherwise still be valid
+    private int @NotNull [] revokedSessionIds() {
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    SELECT id_session
+                    FROM sessions
+                    WHERE expiration_time BETWEEN ? AND ?
+                      AND creation_time > ?;
+                    """;
+            final LocalDateTime now = LocalDateTime.now();
+            final LocalDateTime oldest = now.minus(UserController.SESSION_DURATION);
+            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setLocalDateTime(oldest)
+                    .setLocalDateTime(now)
+                    .setLocalDateTime(oldest)
+                    .executeQuery();
+            final IntStream.Builder ids = IntStream.builder();
+            while (result.next()) ids.add(result.getInt());
+            return ids.build().toArray();
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not get revoked sessions!", e);
+        }
+    }
+
+    // deletes at most limit sessions that expired before the cutoff
+    public int deleteExpiredSessions(final @NotNull LocalDateTime cutoff, final int limit) {
+        // ended sessions are revocations for as long as their signed tokens could still be valid
+        final LocalDateTime created = sessionSigner == null
+                ? cutoff
+                : LocalDateTime.now().minus(UserController.SESSION_DURATION);
+        try (final Connection connection = database.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    DELETE
+                    FROM sessions
+                    WHERE expiration_time < ?
+                      AND creation_time < ?
+                    LIMIT ?;
+                    """;
+            return StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setLocalDateTime(cutoff)
+                    .setLocalDateTime(created)
+                    .setInt(limit)
+                    .executeUpdate();
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not delete expired sessions!", e);
+        }
+    }
+}
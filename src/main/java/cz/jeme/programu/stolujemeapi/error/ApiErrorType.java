@@ -38,6 +38,7 @@ public enum ApiErrorType {
     MEAL_UUID_INVALID("this meal does not exist"),
     PHOTO_CONTENTS_INVALID("an error occurred while trying to process the photo"),
     PHOTO_UUID_INVALID("this photo does not exist"),
+    PHOTO_SIZE_INVALID("photo size must be a positive number of pixels"),
     EMAIL_CANTEEN_INVALID("stolujeme is currently in development and is only available to users from certain canteens"),
     MISSING_AUTHENTICATION("Missing authentication (bearer token)"),
     AUTHENTICATION_INVALID("Invalid authentication"),
@@ -47,7 +48,8 @@ public enum ApiErrorType {
     LANGUAGE_INVALID("this language does not exist"),
     MENU_UUID_INVALID("this menu does not exist"),
     PHOTO_PERMISSION_DENIED("You do not have permission to manipulate with this photo"),
-    MENU_TOO_OLD("This menu is too old to be rated");
+    MENU_TOO_OLD("This menu is too old to be rated"),
+    SERVER_BUSY("the server is busy, please try again later");
 
     private final @Nullable String message;
 
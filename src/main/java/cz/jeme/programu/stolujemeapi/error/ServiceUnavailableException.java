@@ -0,0 +1,28 @@
+package cz.jeme.programu.stolujemeapi.error;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+public class ServiceUnavailableException extends ApiException {
+    private final @NotNull Duration retryAfter;
+
+    public ServiceUnavailableException(final @NotNull ApiErrorType type, final @NotNull Duration retryAfter) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, type);
+        this.retryAfter = retryAfter;
+    }
+
+    public @NotNull Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public @NotNull HttpHeaders getHeaders() {
+        final HttpHeaders headers = new HttpHeaders();
+        // retry after is in whole seconds, never tell the client to retry right away
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        return headers;
+    }
+}
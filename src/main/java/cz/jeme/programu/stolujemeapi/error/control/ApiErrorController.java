@@ -28,6 +28,7 @@ public final class ApiErrorController implements ErrorController {
                         .type(exception.getErrorType())
                         .status(status)
                         .build(),
+                exception.getHeaders(),
                 status
         );
     }
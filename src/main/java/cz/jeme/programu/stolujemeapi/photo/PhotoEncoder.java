@@ -0,0 +1,267 @@
+package cz.jeme.programu.stolujemeapi.photo;
+
+import cz.jeme.programu.stolujemeapi.EnvVar;
+import cz.jeme.programu.stolujemeapi.error.ApiErrorType;
+import cz.jeme.programu.stolujemeapi.error.ServiceUnavailableException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// transcodes photos with imagemagick on a fixed number of workers, so that concurrent uploads can not fork unbounded processes
+public enum PhotoEncoder {
+    INSTANCE;
+
+    private final int threads = EnvVar.PHOTO_ENCODER_THREADS.getInt(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private final int queueSize = EnvVar.PHOTO_ENCODER_QUEUE_SIZE.getInt(threads * 4);
+    private final @NotNull Duration timeout = EnvVar.PHOTO_ENCODER_TIMEOUT.getDuration(Duration.ofMinutes(1));
+    private final @NotNull Duration retryAfter = Duration.ofSeconds(5);
+    // the tail of the imagemagick output kept in the failure message
+    private final int errorOutputLength = 2048;
+    private final @NotNull ThreadPoolExecutor executor;
+    private final @NotNull LongAdder encoded = new LongAdder();
+    private final @NotNull LongAdder failed = new LongAdder();
+    private final @NotNull LongAdder rejected = new LongAdder();
+    // time spent in each stage, summed over all encodes
+    private final @NotNull LongAdder queueNanos = new LongAdder();
+    private final @NotNull LongAdder spawnNanos = new LongAdder();
+    private final @NotNull LongAdder convertNanos = new LongAdder();
+    // the cost of starting imagemagick itself, measured once with a command that reads and writes nothing
+    private volatile long startupNanos = -1;
+    private final @NotNull Logger logger = LoggerFactory.getLogger(getClass());
+
+    PhotoEncoder() {
+        if (threads < 1)
+            throw new IllegalArgumentException("Photo encoder needs at least one thread!");
+        if (queueSize < 1)
+            throw new IllegalArgumentException("Photo encoder queue size must be positive!");
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "photo-encoder-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    // resizes the input to fit every output dimension and encodes it to avif, rejects right away when the queue is full
+    public @NotNull CompletableFuture<Timings> submit(final @NotNull Path input,
+                                                      final @NotNull List<Output> outputs,
+                                                      final @Range(from = 0, to = 100) int quality) {
+        if (outputs.isEmpty())
+            throw new IllegalArgumentException("At least one output is required!");
+        final long submitted = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return encode(input, outputs, quality, submitted);
+                } catch (final IOException e) {
+                    throw new CompletionException(e);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } catch (final RejectedExecutionException e) {
+            rejected.increment();
+            logger.warn("Photo encoder is overloaded, rejecting photo ({})", this);
+            throw new ServiceUnavailableException(ApiErrorType.SERVER_BUSY, retryAfter);
+        }
+    }
+
+    private @NotNull Timings encode(final @NotNull Path input,
+                                    final @NotNull List<Output> outputs,
+                                    final int quality,
+                                    final long submitted) throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        final List<String> command = new ArrayList<>(List.of(
+                "convert",
+                // the pool provides the parallelism, a single process must not take all cores
+                // a setting only applies to the images read after it, so it goes before the input to also cover decoding
+                "-limit",
+                "thread",
+                "1",
+                input.toString(),
+                "-quality",
+                String.valueOf(quality)
+        ));
+        // the input is decoded once, every smaller output is resized from the previous one
+        final List<Output> descending = outputs.stream()
+                .sorted(Comparator.comparingInt(Output::dimension).reversed())
+                .toList();
+        for (int i = 0; i < descending.size(); i++) {
+            final Output output = descending.get(i);
+            command.add("-resize");
+            command.add(output.dimension() + "x" + output.dimension() + ">");
+            if (i < descending.size() - 1) command.add("-write");
+            command.add(output.path().toString());
+        }
+        final Run run;
+        final long startup;
+        try {
+            if (startupNanos == -1) measureStartup();
+            startup = startupNanos;
+            run = run(command);
+        } catch (final IOException | InterruptedException e) {
+            failed.increment();
+            throw e;
+        }
+        // the startup is part of every run, the rest is the conversion itself
+        final long spawn = run.spawned() - run.started();
+        final long convert = Math.max(0, run.exited() - run.spawned() - startup);
+        final Timings timings = new Timings(
+                Duration.ofNanos(start - submitted),
+                Duration.ofNanos(spawn),
+                Duration.ofNanos(startup),
+                Duration.ofNanos(convert)
+        );
+        queueNanos.add(start - submitted);
+        spawnNanos.add(spawn);
+        convertNanos.add(convert);
+        encoded.increment();
+        logger.debug("Encoded photo {} in {} sizes ({})", descending.get(0).path().getFileName(), descending.size(), timings);
+        return timings;
+    }
+
+    // a single pixel written nowhere, imagemagick still loads its configuration and coders
+    private void measureStartup() throws IOException, InterruptedException {
+        final Run run = run(List.of("convert", "xc:", "null:"));
+        startupNanos = run.exited() - run.spawned();
+        logger.info("Imagemagick starts up in {} ms", Duration.ofNanos(startupNanos).toMillis());
+    }
+
+    // the output is kept in a file and only read on failure
+    // a pipe would have to be drained by another thread or it blocks the process when it fills up
+    private @NotNull Run run(final @NotNull List<String> command) throws IOException, InterruptedException {
+        final Path log = Files.createTempFile("stolujeme-imagemagick", ".log");
+        try {
+            final long started = System.nanoTime();
+            final Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(log.toFile())
+                    .start();
+            final long spawned = System.nanoTime();
+            try {
+                if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS))
+                    throw new IOException("Imagemagick process timed out after %d ms: %s".formatted(timeout.toMillis(), errorOutput(log)));
+                if (process.exitValue() != 0)
+                    throw new IOException("Imagemagick process exited with code %d: %s".formatted(process.exitValue(), errorOutput(log)));
+            } finally {
+                process.destroyForcibly();
+            }
+            return new Run(started, spawned, System.nanoTime());
+        } finally {
+            Files.deleteIfExists(log);
+        }
+    }
+
+    private @NotNull String errorOutput(final @NotNull Path log) throws IOException {
+        final long skipped = Math.max(0, Files.size(log) - errorOutputLength);
+        try (final InputStream input = Files.newInputStream(log)) {
+            input.skipNBytes(skipped);
+            final String output = new String(input.readNBytes(errorOutputLength), StandardCharsets.UTF_8).strip();
+            if (output.isEmpty()) return "no output";
+            return skipped == 0 ? output : "..." + output;
+        }
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    public int queueSize() {
+        return queueSize;
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long encoded() {
+        return encoded.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public @NotNull Timings meanTimings() {
+        final long count = Math.max(1, encoded());
+        return new Timings(
+                Duration.ofNanos(queueNanos.sum() / count),
+                Duration.ofNanos(spawnNanos.sum() / count),
+                Duration.ofNanos(Math.max(0, startupNanos)),
+                Duration.ofNanos(convertNanos.sum() / count)
+        );
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "PhotoEncoder{" +
+               "threads=" + threads +
+               ", queueDepth=" + queueDepth() +
+               ", queueSize=" + queueSize +
+               ", encoded=" + encoded() +
+               ", failed=" + failed() +
+               ", rejected=" + rejected() +
+               ", mean=" + meanTimings() +
+               '}';
+    }
+
+    // nano times
+    private record Run(long started, long spawned, long exited) {
+    }
+
+    public record Output(
+            int dimension,
+            @NotNull Path path
+    ) {
+    }
+
+    // queue is the time waiting for a worker, spawn the process start, startup imagemagick loading itself
+    // and convert the rest of the imagemagick run, decoding, resizing and encoding
+    public record Timings(
+            @NotNull Duration queue,
+            @NotNull Duration spawn,
+            @NotNull Duration startup,
+            @NotNull Duration convert
+    ) {
+        public @NotNull Duration total() {
+            return queue.plus(spawn).plus(startup).plus(convert);
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return "Timings{" +
+                   "queue=" + queue.toMillis() + "ms" +
+                   ", spawn=" + spawn.toMillis() + "ms" +
+                   ", startup=" + startup.toMillis() + "ms" +
+                   ", convert=" + convert.toMillis() + "ms" +
+                   '}';
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package cz.jeme.programu.stolujemeapi.photo;
+
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.imaging.ImageProcessingException;
+import com.drew.metadata.Directory;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import com.drew.metadata.heif.HeifDirectory;
+import com.drew.metadata.jpeg.JpegDirectory;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Optional;
+
+// reads the capture time of uploaded photos, only heic and jpeg photos are accepted
+public final class PhotoMetadata {
+    private PhotoMetadata() {
+        throw new AssertionError();
+    }
+
+    // the reader walks the file sequentially and skips image data, so the heap use does not grow with the photo
+    // empty when the photo is neither heic nor jpeg or has no capture time
+    public static @NotNull Optional<LocalDateTime> timeTaken(final @NotNull Path photo) throws IOException {
+        final Metadata meta;
+        try (final InputStream input = new BufferedInputStream(Files.newInputStream(photo))) {
+            meta = ImageMetadataReader.readMetadata(input);
+        } catch (final ImageProcessingException e) {
+            return Optional.empty();
+        }
+
+        final Directory heif = meta.getFirstDirectoryOfType(HeifDirectory.class);
+        if (heif != null) {
+            // HEIC
+            if (!"heic".equals(heif.getString(HeifDirectory.TAG_MAJOR_BRAND))) return Optional.empty();
+        } else if (!meta.containsDirectoryOfType(JpegDirectory.class)) {
+            return Optional.empty();
+        }
+        final ExifSubIFDDirectory exif = meta.getFirstDirectoryOfType(ExifSubIFDDirectory.class);
+        if (exif == null) return Optional.empty();
+        final Date date = exif.getDate(ExifSubIFDDirectory.TAG_DATETIME_ORIGINAL);
+        if (date == null) return Optional.empty();
+        return Optional.of(LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()));
+    }
+}
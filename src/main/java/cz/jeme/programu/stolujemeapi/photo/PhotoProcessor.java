@@ -0,0 +1,123 @@
+package cz.jeme.programu.stolujemeapi.photo;
+
+import cz.jeme.programu.stolujemeapi.EnvVar;
+import cz.jeme.programu.stolujemeapi.db.photo.PhotoDao;
+import cz.jeme.programu.stolujemeapi.db.photo.PhotoUpload;
+import cz.jeme.programu.stolujemeapi.error.ServiceUnavailableException;
+import cz.jeme.programu.stolujemeapi.rest.control.PhotoController;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// encodes accepted uploads in the background and publishes them as photos once they are encoded
+public enum PhotoProcessor {
+    INSTANCE;
+
+    private final @NotNull PhotoEncoder encoder = PhotoEncoder.INSTANCE;
+    private final @NotNull PhotoDao photoDao = PhotoDao.INSTANCE;
+    private final @NotNull PhotoVariants variants = PhotoVariants.INSTANCE;
+    private final @NotNull Duration period = EnvVar.PHOTO_PROCESSOR_PERIOD.getDuration(Duration.ofMinutes(1));
+    // uploads handed to the encoder, so that a resume does not submit them twice
+    private final @NotNull Set<UUID> processing = ConcurrentHashMap.newKeySet();
+    private final @NotNull LongAdder published = new LongAdder();
+    private final @NotNull LongAdder failed = new LongAdder();
+    private final @NotNull ScheduledExecutorService resumer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "photo-processor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final @NotNull Logger logger = LoggerFactory.getLogger(getClass());
+
+    // picks up pending uploads left over by a restart or by a full encoder queue, the database must be initialized
+    public void start() {
+        final long millis = period.toMillis();
+        resumer.scheduleWithFixedDelay(this::resume, 0, millis, TimeUnit.MILLISECONDS);
+    }
+
+    // throws when the encoder queue is full, the upload is left pending
+    public void submit(final @NotNull PhotoUpload upload) {
+        if (!processing.add(upload.uuid())) return;
+        try {
+            encoder.submit(
+                    upload.stagedFile().toPath(),
+                    Arrays.stream(variants.dimensions())
+                            .mapToObj(dimension -> new PhotoEncoder.Output(
+                                    dimension,
+                                    variants.file(upload.file(), dimension).toPath()
+                            ))
+                            .toList(),
+                    PhotoController.IMAGE_QUALITY
+            ).whenComplete((timings, throwable) -> complete(upload, timings, throwable));
+        } catch (final ServiceUnavailableException e) {
+            processing.remove(upload.uuid());
+            throw e;
+        }
+    }
+
+    private void complete(final @NotNull PhotoUpload upload,
+                          final @Nullable PhotoEncoder.Timings timings,
+                          final @Nullable Throwable throwable) {
+        try {
+            if (throwable == null) {
+                photoDao.publishUpload(upload);
+                published.increment();
+                logger.debug("Published photo {} ({})", upload.uuid(), timings);
+            } else {
+                final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause()
+                        : throwable;
+                for (final File variant : variants.files(upload.file())) variant.delete();
+                photoDao.failUpload(upload, String.valueOf(cause.getMessage()));
+                failed.increment();
+                logger.error("Could not encode photo {}!", upload.uuid(), cause);
+            }
+            upload.stagedFile().delete();
+        } catch (final RuntimeException e) {
+            // the upload stays pending and is submitted again by the next resume
+            logger.error("Could not finish photo upload {}!", upload.uuid(), e);
+        } finally {
+            processing.remove(upload.uuid());
+        }
+    }
+
+    private void resume() {
+        try {
+            for (final PhotoUpload upload : photoDao.pendingUploads(encoder.queueSize()))
+                submit(upload);
+        } catch (final ServiceUnavailableException ignored) {
+            // the encoder is busy, the rest is resumed next time
+        } catch (final RuntimeException e) {
+            logger.error("Could not resume photo uploads!", e);
+        }
+    }
+
+    public int processing() {
+        return processing.size();
+    }
+
+    public long published() {
+        return published.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "PhotoProcessor{" +
+               "processing=" + processing() +
+               ", published=" + published() +
+               ", failed=" + failed() +
+               '}';
+    }
+}
@@ -0,0 +1,63 @@
+package cz.jeme.programu.stolujemeapi.photo;
+
+import cz.jeme.programu.stolujemeapi.EnvVar;
+import cz.jeme.programu.stolujemeapi.rest.control.PhotoController;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// sizes every photo is encoded in, the largest one is the photo file itself and the others are stored next to it
+public enum PhotoVariants {
+    INSTANCE;
+
+    // ascending, always ends with the maximum image dimension
+    private final int @NotNull [] dimensions;
+
+    PhotoVariants() {
+        dimensions = IntStream.concat(
+                        Arrays.stream(EnvVar.PHOTO_VARIANTS.getInts(160, 480, 1080)),
+                        IntStream.of(PhotoController.IMAGE_DIMENSION_MAX)
+                )
+                .distinct()
+                .sorted()
+                .toArray();
+        if (dimensions[0] < 1)
+            throw new IllegalArgumentException("Photo variant dimensions must be positive!");
+        if (dimensions[dimensions.length - 1] > PhotoController.IMAGE_DIMENSION_MAX)
+            throw new IllegalArgumentException("Photo variant dimensions must not exceed %d px!".formatted(PhotoController.IMAGE_DIMENSION_MAX));
+    }
+
+    public int @NotNull [] dimensions() {
+        return dimensions.clone();
+    }
+
+    // <uuid>.avif for the maximum dimension, <uuid>-<dimension>.avif for the others
+    public @NotNull File file(final @NotNull File photoFile, final int dimension) {
+        if (dimension == PhotoController.IMAGE_DIMENSION_MAX) return photoFile;
+        final String name = photoFile.getName();
+        final int extension = name.lastIndexOf('.');
+        return new File(
+                photoFile.getParentFile(),
+                name.substring(0, extension) + "-" + dimension + name.substring(extension)
+        );
+    }
+
+    public @NotNull List<File> files(final @NotNull File photoFile) {
+        return Arrays.stream(dimensions)
+                .mapToObj(dimension -> file(photoFile, dimension))
+                .toList();
+    }
+
+    // the smallest variant that is at least as large as the requested size, so that clients never upscale
+    // photos uploaded before a variant was configured fall back to a larger one
+    public int closest(final @NotNull File photoFile, final int size) {
+        for (final int dimension : dimensions) {
+            if (dimension < size) continue;
+            if (file(photoFile, dimension).exists()) return dimension;
+        }
+        return PhotoController.IMAGE_DIMENSION_MAX;
+    }
+}
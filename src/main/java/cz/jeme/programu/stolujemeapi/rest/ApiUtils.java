@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import cz.jeme.programu.stolujemeapi.db.CryptoUtils;
 import cz.jeme.programu.stolujemeapi.db.user.Session;
+import cz.jeme.programu.stolujemeapi.db.user.SessionSigner;
 import cz.jeme.programu.stolujemeapi.db.user.UserDao;
 import cz.jeme.programu.stolujemeapi.error.ApiErrorType;
 import cz.jeme.programu.stolujemeapi.error.ApiException;
@@ -82,7 +83,7 @@ public final class ApiUtils {
         if (!token.startsWith(ApiUtils.TOKEN_PREFIX))
             throw ApiUtils.INVALID_AUTHENTICATION;
         token = token.substring(ApiUtils.TOKEN_PREFIX.length());
-        if (token.length() != CryptoUtils.SESSION_LENGTH_BASE64)
+        if (token.length() != CryptoUtils.SESSION_LENGTH_BASE64 && !SessionSigner.signed(token))
             throw ApiUtils.INVALID_AUTHENTICATION;
         final Session session = UserDao.INSTANCE.sessionByToken(token)
                 .orElseThrow(() -> ApiUtils.INVALID_AUTHENTICATION);
@@ -0,0 +1,163 @@
+package cz.jeme.programu.stolujemeapi.rest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// serves files with conditional and single range requests, the bytes are sent by the kernel when tomcat supports sendfile
+public final class FileSender {
+    // tomcat sends the file itself after the servlet returns, see org.apache.coyote.Constants
+    private static final @NotNull String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final @NotNull String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final @NotNull String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final @NotNull String SENDFILE_END = "org.apache.tomcat.sendfile.end"; // exclusive
+    private static final @NotNull String RANGE_UNIT = "bytes";
+    // a range that can not be served, as opposed to null which means the whole file
+    private static final @NotNull ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private FileSender() {
+        throw new AssertionError();
+    }
+
+    public static void send(final @NotNull HttpServletRequest request,
+                            final @NotNull HttpServletResponse response,
+                            final @NotNull File file,
+                            final @NotNull MediaType contentType,
+                            final @NotNull String eTag,
+                            final @NotNull CacheControl cacheControl) throws IOException {
+        // before any header is set, the error response must not be cached as the file
+        if (!file.isFile()) throw new FileNotFoundException("The file %s does not exist!".formatted(file));
+        final long length = file.length();
+        // http dates have a precision of seconds
+        final long lastModified = file.lastModified() / 1000 * 1000;
+        final String quotedETag = '"' + eTag + '"';
+        response.setHeader(HttpHeaders.ETAG, quotedETag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, FileSender.RANGE_UNIT);
+
+        if (FileSender.notModified(request, quotedETag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        ByteRange range = new ByteRange(0, length - 1);
+        final String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && FileSender.rangeApplies(request, quotedETag, lastModified)) {
+            final ByteRange requested = FileSender.parseRange(rangeHeader, length);
+            if (requested == FileSender.UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, FileSender.RANGE_UNIT + " */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (requested != null) {
+                range = requested;
+                response.setHeader(
+                        HttpHeaders.CONTENT_RANGE,
+                        "%s %d-%d/%d".formatted(FileSender.RANGE_UNIT, range.start(), range.end(), length)
+                );
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            }
+        }
+
+        response.setContentType(contentType.toString());
+        response.setContentLengthLong(range.length());
+        if (request.getMethod().equals("HEAD") || range.length() == 0) return;
+
+        if (Boolean.TRUE.equals(request.getAttribute(FileSender.SENDFILE_SUPPORT))) {
+            request.setAttribute(FileSender.SENDFILE_FILENAME, file.getAbsolutePath());
+            request.setAttribute(FileSender.SENDFILE_START, range.start());
+            request.setAttribute(FileSender.SENDFILE_END, range.end() + 1);
+            return;
+        }
+        // e.g. over tls, the jdk copies through a buffer as the target is not a socket channel
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+            long position = range.start();
+            while (position <= range.end())
+                position += channel.transferTo(position, range.end() + 1 - position, output);
+        }
+    }
+
+    // if-none-match takes precedence over if-modified-since
+    private static boolean notModified(final @NotNull HttpServletRequest request,
+                                       final @NotNull String quotedETag,
+                                       final long lastModified) {
+        final String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.strip().equals("*") || Arrays.stream(ifNoneMatch.split(","))
+                    .map(String::strip)
+                    // weak comparison
+                    .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                    .anyMatch(quotedETag::equals);
+        }
+        final long ifModifiedSince = FileSender.dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    // a range is only served when the client still has the same representation
+    private static boolean rangeApplies(final @NotNull HttpServletRequest request,
+                                        final @NotNull String quotedETag,
+                                        final long lastModified) {
+        final String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        // strong comparison
+        if (ifRange.startsWith("\"")) return ifRange.equals(quotedETag);
+        if (ifRange.startsWith("W/")) return false;
+        return FileSender.dateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+    }
+
+    private static long dateHeader(final @NotNull HttpServletRequest request, final @NotNull String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (final IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    // only single ranges are served, anything else is ignored and the whole file is sent
+    private static @Nullable ByteRange parseRange(final @NotNull String header, final long length) {
+        if (!header.startsWith(FileSender.RANGE_UNIT + "=")) return null;
+        final String spec = header.substring(FileSender.RANGE_UNIT.length() + 1).strip();
+        if (spec.contains(",")) return null;
+        final int dash = spec.indexOf('-');
+        if (dash == -1) return null;
+        final String startStr = spec.substring(0, dash).strip();
+        final String endStr = spec.substring(dash + 1).strip();
+        try {
+            if (startStr.isEmpty()) {
+                // suffix range, the last n bytes
+                final long suffix = Long.parseLong(endStr);
+                if (suffix <= 0 || length == 0) return FileSender.UNSATISFIABLE;
+                return new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+            final long start = Long.parseLong(startStr);
+            final long end = endStr.isEmpty() ? Long.MAX_VALUE : Long.parseLong(endStr);
+            if (start < 0 || end < start) return null;
+            if (start >= length) return FileSender.UNSATISFIABLE;
+            return new ByteRange(start, Math.min(end, length - 1));
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // inclusive on both ends like the content-range header
+    private record ByteRange(long start, long end) {
+        public long length() {
+            return end - start + 1;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package cz.jeme.programu.stolujemeapi.rest;
+
+import cz.jeme.programu.stolujemeapi.EnvVar;
+import cz.jeme.programu.stolujemeapi.db.CryptoUtils;
+import cz.jeme.programu.stolujemeapi.error.ApiErrorType;
+import cz.jeme.programu.stolujemeapi.error.ServiceUnavailableException;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// password hashing is cpu bound, it runs on its own threads so that request threads stay free for cheap endpoints
+public enum HashExecutor {
+    INSTANCE;
+
+    private final int threads = EnvVar.HASH_THREADS.getInt(Runtime.getRuntime().availableProcessors());
+    private final int queueSize = EnvVar.HASH_QUEUE_SIZE.getInt(threads * 16);
+    private final @NotNull Duration retryAfter = EnvVar.HASH_RETRY_AFTER.getDuration(Duration.ofSeconds(1));
+    private final @NotNull Duration reportPeriod = EnvVar.HASH_REPORT_PERIOD.getDuration(Duration.ofMinutes(1));
+    private final @NotNull ThreadPoolExecutor executor;
+    private final @NotNull LongAdder hashes = new LongAdder();
+    private final @NotNull LongAdder rejected = new LongAdder();
+    private final @NotNull LongAdder waitNanos = new LongAdder(); // time spent in the queue
+    private final @NotNull LongAdder hashNanos = new LongAdder(); // time spent hashing
+    private final @NotNull LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0); // since the last report
+    // only the first rejection of a report period is logged, the rest are counted in the report
+    private final @NotNull AtomicBoolean rejectionLogged = new AtomicBoolean();
+    private final @NotNull ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "password-hash-reporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // the totals at the last report, only touched by the reporter
+    private long reportedHashes;
+    private long reportedRejected;
+    private long reportedWaitNanos;
+    private long reportedHashNanos;
+    private final @NotNull Logger logger = LoggerFactory.getLogger(getClass());
+
+    HashExecutor() {
+        if (threads < 1)
+            throw new IllegalArgumentException("Hash executor needs at least one thread!");
+        if (queueSize < 1)
+            throw new IllegalArgumentException("Hash executor queue size must be positive!");
+        final AtomicInteger threadCount = new AtomicInteger();
+        // a full queue rejects right away instead of blocking the request thread
+        executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    public @NotNull String hash(final @NotNull String input, final @NotNull String salt) {
+        return submit(() -> CryptoUtils.hash(input, salt), "hash");
+    }
+
+    // validates with the iterations stored in the hash, not the current ones
+    public boolean validate(final @NotNull String input, final @NotNull String hash, final @NotNull String salt) {
+        return submit(() -> CryptoUtils.validate(input, hash, salt), "validate");
+    }
+
+    private <T> @NotNull T submit(final @NotNull Callable<T> task, final @NotNull String action) {
+        final long submitted = System.nanoTime();
+        final Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                final long start = System.nanoTime();
+                waitNanos.add(start - submitted);
+                try {
+                    return task.call();
+                } finally {
+                    final long end = System.nanoTime();
+                    hashNanos.add(end - start);
+                    maxLatencyNanos.accumulate(end - submitted);
+                    hashes.increment();
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            rejected.increment();
+            if (rejectionLogged.compareAndSet(false, true))
+                logger.warn("Password hashing is overloaded, rejecting requests until the next report ({})", this);
+            throw new ServiceUnavailableException(ApiErrorType.SERVER_BUSY, retryAfter);
+        }
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted whilst trying to %s password!".formatted(action), e);
+        } catch (final ExecutionException e) {
+            throw new RuntimeException("Could not %s password!".formatted(action), e.getCause());
+        }
+    }
+
+    // logs the load of every period in which something was hashed or rejected
+    public void startReporting() {
+        final long millis = reportPeriod.toMillis();
+        reporter.scheduleAtFixedRate(this::report, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    private void report() {
+        final long hashes = hashes();
+        final long rejected = rejected();
+        final long waitNanos = this.waitNanos.sum();
+        final long hashNanos = this.hashNanos.sum();
+        final long periodHashes = hashes - reportedHashes;
+        final long periodRejected = rejected - reportedRejected;
+        final long periodWaitNanos = waitNanos - reportedWaitNanos;
+        final long periodHashNanos = hashNanos - reportedHashNanos;
+        reportedHashes = hashes;
+        reportedRejected = rejected;
+        reportedWaitNanos = waitNanos;
+        reportedHashNanos = hashNanos;
+        final long maxLatencyNanos = this.maxLatencyNanos.getThenReset();
+        rejectionLogged.set(false);
+        if (periodHashes == 0 && periodRejected == 0) return;
+        final long count = Math.max(1, periodHashes);
+        logger.info(
+                "Password hashing in the last {} s: {} hashes, {} rejected, mean wait {} ms, mean hash {} ms, max latency {} ms, queue depth {}/{}",
+                reportPeriod.toSeconds(),
+                periodHashes,
+                periodRejected,
+                Duration.ofNanos(periodWaitNanos / count).toMillis(),
+                Duration.ofNanos(periodHashNanos / count).toMillis(),
+                Duration.ofNanos(maxLatencyNanos).toMillis(),
+                queueDepth(),
+                queueSize
+        );
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    public int queueSize() {
+        return queueSize;
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int active() {
+        return executor.getActiveCount();
+    }
+
+    public long hashes() {
+        return hashes.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public @NotNull Duration meanWait() {
+        final long count = hashes();
+        return Duration.ofNanos(count == 0 ? 0 : waitNanos.sum() / count);
+    }
+
+    public @NotNull Duration meanHash() {
+        final long count = hashes();
+        return Duration.ofNanos(count == 0 ? 0 : hashNanos.sum() / count);
+    }
+
+    public @NotNull Duration maxLatency() {
+        return Duration.ofNanos(maxLatencyNanos.get());
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "HashExecutor{" +
+               "threads=" + threads +
+               ", queueDepth=" + queueDepth() +
+               ", queueSize=" + queueSize +
+               ", active=" + active() +
+               ", hashes=" + hashes() +
+               ", rejected=" + rejected() +
+               ", meanWait=" + meanWait().toMillis() + "ms" +
+               ", meanHash=" + meanHash().toMillis() + "ms" +
+               ", maxLatency=" + maxLatency().toMillis() + "ms" +
+               '}';
+    }
+}
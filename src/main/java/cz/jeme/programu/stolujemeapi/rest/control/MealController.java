@@ -1,16 +1,14 @@
 package cz.jeme.programu.stolujemeapi.rest.control;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import cz.jeme.programu.stolujemeapi.canteen.Canteen;
 import cz.jeme.programu.stolujemeapi.db.meal.Meal;
 import cz.jeme.programu.stolujemeapi.db.meal.MealDao;
 import cz.jeme.programu.stolujemeapi.db.meal.MealName;
-import cz.jeme.programu.stolujemeapi.db.meal.MenuEntry;
+import cz.jeme.programu.stolujemeapi.db.meal.MenuReadModel;
 import cz.jeme.programu.stolujemeapi.db.photo.Photo;
 import cz.jeme.programu.stolujemeapi.db.photo.PhotoDao;
 import cz.jeme.programu.stolujemeapi.db.rating.RatingDao;
 import cz.jeme.programu.stolujemeapi.db.user.Session;
-import cz.jeme.programu.stolujemeapi.db.user.UserDao;
 import cz.jeme.programu.stolujemeapi.error.ApiErrorType;
 import cz.jeme.programu.stolujemeapi.error.InvalidParamException;
 import cz.jeme.programu.stolujemeapi.rest.ApiUtils;
@@ -112,45 +110,22 @@ public final class MealController {
         if (fromDate.isAfter(toDate))
             throw new InvalidParamException("from-date", ApiErrorType.DATE_ORDER_INVALID);
 
-        final Canteen canteen = UserDao.INSTANCE.userBySession(session).canteen();
-
-        final Map<Integer, Double> userRatings = RatingDao.INSTANCE.averageRatingsByDates(
-                fromDate,
-                toDate,
-                RatingDao.RatingRequestType.USER,
-                session.userId()
-        );
-
-        final Map<Integer, Double> globalRatings = RatingDao.INSTANCE.averageRatingsByDates(
-                fromDate,
-                toDate,
-                RatingDao.RatingRequestType.GLOBAL,
-                session.userId()
-        );
-
-        final Map<Integer, Integer> currentRatings = RatingDao.INSTANCE.currentRatingsByDates(
-                fromDate,
-                toDate,
-                session.userId()
-        );
-
-        final Map<LocalDate, List<MenuEntryData>> entries = MealDao.INSTANCE.menuEntriesByDates(canteen, fromDate, toDate)
+        final MenuReadModel.Menu menu = MenuReadModel.INSTANCE.menu(session.userId(), fromDate, toDate);
+
+        final Map<LocalDate, List<MenuEntryData>> entries = menu.rows()
                 .stream()
                 .collect(Collectors.groupingBy(
-                        MenuEntry::date,
+                        row -> row.entry().date(),
                         TreeMap::new,
                         Collectors.mapping(
-                                menuEntry -> new MenuEntryData(
-                                        menuEntry.mealName(),
-                                        menuEntry.courseNumber(),
-                                        menuEntry.uuid(),
-                                        currentRatings.get(menuEntry.id()),
+                                row -> new MenuEntryData(
+                                        row.entry().mealName(),
+                                        row.entry().courseNumber(),
+                                        row.entry().uuid(),
+                                        row.currentRating(),
                                         new MenuMealData(
-                                                menuEntry.meal(),
-                                                new RatingDao.MealRatingData(
-                                                        userRatings.get(menuEntry.meal().id()),
-                                                        globalRatings.get(menuEntry.meal().id())
-                                                )
+                                                row.entry().meal(),
+                                                row.ratingData()
                                         )
                                 ),
                                 Collectors.toList()
@@ -158,7 +133,7 @@ public final class MealController {
                 ));
         entries.values().forEach(list -> list.sort(MenuEntryDataComparator.INSTANCE));
 
-        return new MenuResponse(canteen.name(), entries);
+        return new MenuResponse(menu.canteen().name(), entries);
     }
 
     private @NotNull LocalDate parseDate(final @NotNull String dateStr, final @NotNull String paramName) {
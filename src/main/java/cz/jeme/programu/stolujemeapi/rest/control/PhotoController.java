@@ -1,46 +1,43 @@
 package cz.jeme.programu.stolujemeapi.rest.control;
 
-import com.drew.imaging.ImageMetadataReader;
-import com.drew.imaging.ImageProcessingException;
-import com.drew.metadata.Directory;
-import com.drew.metadata.Metadata;
-import com.drew.metadata.exif.ExifSubIFDDirectory;
-import com.drew.metadata.heif.HeifDirectory;
-import com.drew.metadata.jpeg.JpegDirectory;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import cz.jeme.programu.stolujemeapi.EnvVar;
 import cz.jeme.programu.stolujemeapi.db.meal.Meal;
 import cz.jeme.programu.stolujemeapi.db.meal.MealDao;
 import cz.jeme.programu.stolujemeapi.db.photo.Photo;
 import cz.jeme.programu.stolujemeapi.db.photo.PhotoDao;
-import cz.jeme.programu.stolujemeapi.db.photo.PhotoSkeleton;
+import cz.jeme.programu.stolujemeapi.db.photo.PhotoUpload;
+import cz.jeme.programu.stolujemeapi.db.photo.PhotoUploadSkeleton;
 import cz.jeme.programu.stolujemeapi.db.user.Session;
 import cz.jeme.programu.stolujemeapi.db.user.User;
 import cz.jeme.programu.stolujemeapi.db.user.UserDao;
 import cz.jeme.programu.stolujemeapi.error.ApiErrorType;
 import cz.jeme.programu.stolujemeapi.error.ApiException;
 import cz.jeme.programu.stolujemeapi.error.InvalidParamException;
+import cz.jeme.programu.stolujemeapi.error.ServiceUnavailableException;
+import cz.jeme.programu.stolujemeapi.photo.PhotoMetadata;
+import cz.jeme.programu.stolujemeapi.photo.PhotoProcessor;
+import cz.jeme.programu.stolujemeapi.photo.PhotoVariants;
 import cz.jeme.programu.stolujemeapi.rest.ApiUtils;
+import cz.jeme.programu.stolujemeapi.rest.FileSender;
 import cz.jeme.programu.stolujemeapi.rest.Response;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Range;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.util.Date;
 import java.util.List;
-import java.util.Objects;
 import java.util.UUID;
 
 @RestController
@@ -49,116 +46,153 @@ public final class PhotoController {
     public static final @Range(from = 0, to = 100) int IMAGE_QUALITY = 40; // %
     public static final @NotNull Duration MAX_PHOTO_AGE = Duration.ofDays(7);
     public static final @NotNull MediaType IMAGE_AVIF = MediaType.valueOf("image/avif");
+    // originals waiting to be encoded, meal directories are named by uuid so this can not clash
+    public static final @NotNull String STAGING_DIR_NAME = "staging";
+    // private, photos are only served to authenticated users
+    public static final @NotNull CacheControl PHOTO_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365))
+            .cachePrivate()
+            .immutable();
 
     private PhotoController() {
     }
 
     private final @NotNull InvalidParamException invalidPhoto = new InvalidParamException("photo", ApiErrorType.PHOTO_CONTENTS_INVALID);
     private final @NotNull File photoDir = new File(EnvVar.PHOTO_DIR.require());
+    private final @NotNull File stagingDir = new File(photoDir, PhotoController.STAGING_DIR_NAME);
 
     {
         if (!photoDir.mkdirs() && !photoDir.isDirectory())
             throw new IllegalArgumentException("Image directory is not a directory!");
+        if (!stagingDir.mkdirs() && !stagingDir.isDirectory())
+            throw new IllegalArgumentException("Image staging directory is not a directory!");
     }
 
     @PostMapping(value = "/meals/{mealUuid}/photos", consumes = {MediaType.MULTIPART_FORM_DATA_VALUE})
-    @ResponseStatus(HttpStatus.CREATED)
+    @ResponseStatus(HttpStatus.ACCEPTED)
     @ResponseBody
     private @NotNull Response uploadPhoto(final @NotNull @PathVariable("mealUuid") String mealUuidStr,
                                           final @NotNull @RequestParam("photo") MultipartFile file,
                                           final @NotNull HttpServletResponse response) {
         final Session session = ApiUtils.authenticate();
-        final byte[] imageData;
-        try {
-            imageData = file.getBytes();
-        } catch (final IOException e) {
-            throw invalidPhoto;
-        }
-
         final UUID mealUuid = ApiUtils.parseUuid(mealUuidStr, "mealUuid");
         final Meal meal = MealDao.INSTANCE.mealByUuid(mealUuid)
                 .orElseThrow(() -> new InvalidParamException("mealUuid", ApiErrorType.MEAL_UUID_INVALID));
 
-        final Duration photoAge = Duration.between(getTimeTaken(imageData), LocalDateTime.now());
-        if (photoAge.compareTo(PhotoController.MAX_PHOTO_AGE) > 0)
-            // photo age is greater than maximum photo age
-            throw invalidPhoto;
-
         final UUID photoUuid = UUID.randomUUID();
 
         final File mealDir = new File(Path.of(photoDir.getAbsolutePath(), meal.uuid().toString()).toString());
         mealDir.mkdir();
         final String outputPath = Path.of(mealDir.getAbsolutePath(), photoUuid + ".avif").toString();
 
-        final ProcessBuilder processBuilder = new ProcessBuilder(
-                "convert",
-                "-",
-                "-resize",
-                PhotoController.IMAGE_DIMENSION_MAX + "x" + PhotoController.IMAGE_DIMENSION_MAX + ">",
-                "-quality",
-                String.valueOf(PhotoController.IMAGE_QUALITY),
-                outputPath
-        );
-        final Process process;
+        // the original is kept in the staging directory until the processor has encoded it
+        final Path staged;
         try {
-            process = processBuilder.start();
-            process.getOutputStream().write(imageData);
-            process.getOutputStream().close();
-            final int exitCode = process.waitFor();
-            if (exitCode != 0)
-                throw new RuntimeException("Imagemagick process exited with code " + exitCode);
-        } catch (final IOException | InterruptedException e) {
-            throw new RuntimeException("An error occurred while executing imagemagick!", e);
+            staged = Files.createTempFile(stagingDir.toPath(), photoUuid.toString(), ".upload");
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not stage photo!", e);
+        }
+        final PhotoUpload upload;
+        try {
+            // the multipart part is spooled to the staging directory, so this is a rename rather than a copy
+            try {
+                file.transferTo(staged.toFile());
+            } catch (final IOException e) {
+                throw invalidPhoto;
+            }
+
+            final Duration photoAge = Duration.between(getTimeTaken(staged), LocalDateTime.now());
+            if (photoAge.compareTo(PhotoController.MAX_PHOTO_AGE) > 0)
+                // photo age is greater than maximum photo age
+                throw invalidPhoto;
+
+            upload = PhotoDao.INSTANCE.insertUpload(new PhotoUploadSkeleton.Builder()
+                    .userId(session.userId())
+                    .mealId(meal.id())
+                    .uuid(photoUuid)
+                    .stagedFile(staged.toFile())
+                    .file(new File(outputPath))
+                    .build());
+        } catch (final RuntimeException e) {
+            staged.toFile().delete();
+            throw e;
+        }
+        try {
+            PhotoProcessor.INSTANCE.submit(upload);
+        } catch (final ServiceUnavailableException e) {
+            PhotoDao.INSTANCE.deleteUploadByUuid(photoUuid);
+            staged.toFile().delete();
+            throw e;
         }
 
-        final Photo photo = PhotoDao.INSTANCE.insertPhoto(new PhotoSkeleton.Builder()
-                .userId(session.userId())
-                .mealId(meal.id())
-                .uuid(photoUuid)
-                .file(new File(outputPath))
-                .build());
-
-        response.addHeader("Location", "/meals/" + mealUuid + "/photos/" + photoUuid);
-        return new PhotoPostResponse(
-                photoUuid,
-                photo.uploadedTime()
-        );
+        response.addHeader("Location", "/meals/" + mealUuid + "/photos/" + photoUuid + "/status");
+        return new PhotoUploadResponse(new PhotoUploadData(upload));
     }
 
-    private @NotNull LocalDateTime getTimeTaken(final byte @NotNull [] imageData) {
-        final Metadata meta;
+    private @NotNull LocalDateTime getTimeTaken(final @NotNull Path photo) {
         try {
-            meta = ImageMetadataReader.readMetadata(new ByteArrayInputStream(imageData));
-        } catch (final ImageProcessingException | IOException e) {
+            return PhotoMetadata.timeTaken(photo).orElseThrow(() -> invalidPhoto);
+        } catch (final IOException e) {
             throw invalidPhoto;
         }
+    }
 
-        if (meta.containsDirectoryOfType(HeifDirectory.class)) {
-            // HEIC
-            final Directory heif = Objects.requireNonNull(meta.getFirstDirectoryOfType(HeifDirectory.class));
-            final String majorBrand = photoRequire(heif.getString(HeifDirectory.TAG_MAJOR_BRAND));
-            if (!majorBrand.equals("heic")) throw invalidPhoto;
-        } else if (meta.containsDirectoryOfType(JpegDirectory.class)) {
-            // JPEG
-        } else {
-            throw invalidPhoto;
-        }
-        final ExifSubIFDDirectory exif = photoRequire(meta.getFirstDirectoryOfType(ExifSubIFDDirectory.class));
-        final Date date = photoRequire(exif.getDate(ExifSubIFDDirectory.TAG_DATETIME_ORIGINAL));
-        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    @GetMapping("/meals/{mealUuid}/photos/{photoUuid}/status")
+    @ResponseBody
+    private @NotNull Response getPhotoUpload(final @NotNull @PathVariable("mealUuid") String mealUuidStr,
+                                             final @NotNull @PathVariable("photoUuid") String photoUuidStr) {
+        final Session session = ApiUtils.authenticate();
+        final UUID mealUuid = ApiUtils.parseUuid(mealUuidStr, "mealUuid");
+        final Meal meal = MealDao.INSTANCE.mealByUuid(mealUuid)
+                .orElseThrow(() -> new InvalidParamException("mealUuid", ApiErrorType.MEAL_UUID_INVALID));
+        final UUID photoUuid = ApiUtils.parseUuid(photoUuidStr, "photoUuid");
+        // uploads are only visible to their author until they are published
+        final PhotoUpload upload = PhotoDao.INSTANCE.uploadByUuid(photoUuid)
+                .filter(u -> u.mealId() == meal.id() && u.userId() == session.userId())
+                .orElseThrow(() -> new InvalidParamException("photoUuid", ApiErrorType.PHOTO_UUID_INVALID));
+        return new PhotoUploadResponse(new PhotoUploadData(upload));
+    }
+
+    @GetMapping("/meals/{mealUuid}/photos/pending")
+    @ResponseBody
+    private @NotNull Response getPhotoUploads(final @NotNull @PathVariable("mealUuid") String mealUuidStr) {
+        final Session session = ApiUtils.authenticate();
+        final UUID mealUuid = ApiUtils.parseUuid(mealUuidStr, "mealUuid");
+        final Meal meal = MealDao.INSTANCE.mealByUuid(mealUuid)
+                .orElseThrow(() -> new InvalidParamException("mealUuid", ApiErrorType.MEAL_UUID_INVALID));
+        return new PhotoUploadsResponse(
+                PhotoDao.INSTANCE.unpublishedUploadsByMealIdUserId(meal.id(), session.userId()).stream()
+                        .map(PhotoUploadData::new)
+                        .toList()
+        );
+    }
+
+    public record PhotoUploadResponse(
+            @JsonProperty("upload")
+            @NotNull PhotoUploadData uploadData
+    ) implements Response {
     }
 
-    private <T> @NotNull T photoRequire(final @Nullable T param) {
-        if (param == null) throw invalidPhoto;
-        return param;
+    public record PhotoUploadsResponse(
+            @JsonProperty("uploads")
+            @NotNull List<PhotoUploadData> uploads
+    ) implements Response {
     }
 
-    public record PhotoPostResponse(
+    public record PhotoUploadData(
             @JsonProperty("photoUuid")
             @NotNull UUID photoUuid,
+            @JsonProperty("status")
+            @NotNull PhotoUpload.Status status,
             @JsonProperty("uploadedTime")
-            @NotNull LocalDateTime uploadedTime
-    ) implements Response {
+            @NotNull LocalDateTime uploadedTime,
+            @JsonProperty("updatedTime")
+            @NotNull LocalDateTime updatedTime,
+            @JsonProperty("error")
+            @Nullable String error
+    ) {
+        private PhotoUploadData(final @NotNull PhotoUpload upload) {
+            this(upload.uuid(), upload.status(), upload.uploadedTime(), upload.updatedTime(), upload.error());
+        }
     }
 
     private @NotNull List<Photo> getPhotosByMealUuid(final @NotNull String mealUuidStr) {
@@ -238,25 +272,49 @@ public final class PhotoController {
 
         if (!photo.file().delete())
             throw new RuntimeException("Could not delete photo from disk!");
+        // variants are missing for photos uploaded before they were configured
+        for (final File variant : PhotoVariants.INSTANCE.files(photo.file())) variant.delete();
 
         return ApiUtils.emptyResponse();
     }
 
 
     @GetMapping("/meals/{mealUuid}/photos/{photoUuid}/view")
-    @ResponseBody
-    private @NotNull ResponseEntity<InputStreamResource> viewPhoto(final @NotNull @PathVariable("mealUuid") String mealUuidStr,
-                                                                   final @NotNull @PathVariable("photoUuid") String photoUuidStr) {
+    private void viewPhoto(final @NotNull @PathVariable("mealUuid") String mealUuidStr,
+                           final @NotNull @PathVariable("photoUuid") String photoUuidStr,
+                           final @Nullable @RequestParam(name = "size", required = false) String sizeStr,
+                           final @NotNull HttpServletRequest request,
+                           final @NotNull HttpServletResponse response) {
         ApiUtils.authenticate();
 
         final Photo photo = getPhotoByUuidMealUuid(mealUuidStr, photoUuidStr);
+        final int dimension = sizeStr == null
+                ? PhotoController.IMAGE_DIMENSION_MAX
+                : PhotoVariants.INSTANCE.closest(photo.file(), parseSize(sizeStr));
+
+        try {
+            // a photo never changes under its uuid, only deleted
+            FileSender.send(
+                    request,
+                    response,
+                    PhotoVariants.INSTANCE.file(photo.file(), dimension),
+                    PhotoController.IMAGE_AVIF,
+                    photo.uuid() + "-" + dimension,
+                    PhotoController.PHOTO_CACHE_CONTROL
+            );
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not send photo!", e);
+        }
+    }
 
+    private int parseSize(final @NotNull String sizeStr) {
+        final int size;
         try {
-            return ResponseEntity.ok()
-                    .contentType(PhotoController.IMAGE_AVIF)
-                    .body(new InputStreamResource(new FileInputStream(photo.file())));
-        } catch (final FileNotFoundException e) {
-            throw new RuntimeException("The file does not exist!", e);
+            size = Integer.parseInt(sizeStr);
+        } catch (final NumberFormatException e) {
+            throw new InvalidParamException("size", ApiErrorType.PHOTO_SIZE_INVALID);
         }
+        if (size < 1) throw new InvalidParamException("size", ApiErrorType.PHOTO_SIZE_INVALID);
+        return size;
     }
 }
@@ -1,14 +1,17 @@
 package cz.jeme.programu.stolujemeapi.rest.control;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import cz.jeme.programu.stolujemeapi.EnvVar;
+import cz.jeme.programu.stolujemeapi.EmailDispatcher;
 import cz.jeme.programu.stolujemeapi.Lang;
 import cz.jeme.programu.stolujemeapi.canteen.Canteen;
 import cz.jeme.programu.stolujemeapi.db.CryptoUtils;
+import cz.jeme.programu.stolujemeapi.db.email.EmailSkeleton;
 import cz.jeme.programu.stolujemeapi.db.user.*;
 import cz.jeme.programu.stolujemeapi.error.ApiErrorType;
 import cz.jeme.programu.stolujemeapi.error.InvalidParamException;
+import cz.jeme.programu.stolujemeapi.error.ServiceUnavailableException;
 import cz.jeme.programu.stolujemeapi.rest.ApiUtils;
+import cz.jeme.programu.stolujemeapi.rest.HashExecutor;
 import cz.jeme.programu.stolujemeapi.rest.Request;
 import cz.jeme.programu.stolujemeapi.rest.Response;
 import org.apache.commons.validator.routines.EmailValidator;
@@ -16,8 +19,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriUtils;
 
@@ -45,12 +46,12 @@ public final class UserController {
     private static final @NotNull InvalidParamException INVALID_CREDENTIALS = new InvalidParamException(UserController.CREDENTIALS_PLACEHOLDER, ApiErrorType.INVALID_CREDENTIALS);
 
     private final @NotNull UserDao userDao = UserDao.INSTANCE;
-    private final @NotNull String emailUsername = EnvVar.EMAIL_USERNAME.require();
-    private final @NotNull JavaMailSender emailSender;
+    private final @NotNull HashExecutor hashExecutor = HashExecutor.INSTANCE;
+    private final @NotNull EmailDispatcher emailDispatcher;
 
     @Autowired
-    private UserController(final @NotNull JavaMailSender emailSender) {
-        this.emailSender = emailSender;
+    private UserController(final @NotNull EmailDispatcher emailDispatcher) {
+        this.emailDispatcher = emailDispatcher;
     }
 
     @PostMapping("/auth/register")
@@ -118,7 +119,7 @@ public final class UserController {
                     if (oReg.isEmpty()) // no active registration with this email and name exists
                         return ApiErrorType.OK;
                     final Registration registration = oReg.get();
-                    if (CryptoUtils.validate(password, registration.passwordHash(), registration.passwordSalt())) {
+                    if (hashExecutor.validate(password, registration.passwordHash(), registration.passwordSalt())) {
                         // the email, name and password all match = this is a verification resend request
                         return ApiErrorType.OK;
                     }
@@ -134,7 +135,7 @@ public final class UserController {
                 .orElseGet(CryptoUtils::randomSalt);
         final String hash = oReg
                 .map(Registration::passwordHash)
-                .orElse(CryptoUtils.hash(password, salt));
+                .orElseGet(() -> hashExecutor.hash(password, salt));
 
         final String code = CryptoUtils.randomVerification();
 
@@ -150,18 +151,17 @@ public final class UserController {
                 .build()
         );
 
-        // send email
-        final SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom("Stolujeme <%s>".formatted(emailUsername));
-        message.setTo(email);
-        message.setSubject(language.verificationSubject());
-        message.setText(language.verification()
-                .replace("${EMAIL}", email)
-                .replace("${NAME}", name)
-                .replace("${CODE}", UriUtils.encodePathSegment(code, StandardCharsets.UTF_8))
+        // queue email, it is sent in the background
+        emailDispatcher.enqueue(new EmailSkeleton.Builder()
+                .recipient(email)
+                .subject(language.verificationSubject())
+                .text(language.verification()
+                        .replace("${EMAIL}", email)
+                        .replace("${NAME}", name)
+                        .replace("${CODE}", UriUtils.encodePathSegment(code, StandardCharsets.UTF_8))
+                )
+                .build()
         );
-        // TODO
-        emailSender.send(message);
 
         return new RegisterResponse(new RegistrationData(registration));
     }
@@ -225,15 +225,25 @@ public final class UserController {
         final Optional<User> oUser = userDao.userByEmail(email);
         if (oUser.isEmpty()) {
             // hash to create fake delay so that an attacker does not know whether they guessed an email
-            CryptoUtils.hash(password, CryptoUtils.randomSalt());
+            hashExecutor.hash(password, CryptoUtils.randomSalt());
             throw UserController.INVALID_CREDENTIALS;
         }
 
         final User user = oUser.get();
 
-        if (!CryptoUtils.validate(password, user.passwordHash(), user.passwordSalt()))
+        if (!hashExecutor.validate(password, user.passwordHash(), user.passwordSalt()))
             throw UserController.INVALID_CREDENTIALS;
 
+        // upgrade the hash to the current parameters while the password is known
+        if (CryptoUtils.needsRehash(user.passwordHash())) {
+            try {
+                final String salt = CryptoUtils.randomSalt();
+                userDao.updateUserPassword(user.id(), hashExecutor.hash(password, salt), salt);
+            } catch (final ServiceUnavailableException ignored) {
+                // the user is already logged in, the hash is upgraded on one of the next logins
+            }
+        }
+
         final String token = CryptoUtils.randomSession();
 
         final Session session = userDao.insertSession(
@@ -2,6 +2,7 @@ package cz.jeme.programu.stolujemeapi.sql;
 
 import cz.jeme.programu.stolujemeapi.canteen.Canteen;
 import cz.jeme.programu.stolujemeapi.db.meal.Meal;
+import cz.jeme.programu.stolujemeapi.db.photo.PhotoUpload;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -17,6 +18,7 @@ import java.time.LocalTime;
 import java.util.Calendar;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface ResultWrapper extends WrapperWrapper<ResultWrapper, ResultSet> {
     boolean next() throws SQLException;
@@ -288,4 +290,22 @@ public interface ResultWrapper extends WrapperWrapper<ResultWrapper, ResultSet>
 
     @Nullable
     File getFile() throws SQLException;
-}
\ No newline at end of file
+
+    @Nullable
+    PhotoUpload.Status getUploadStatus(final int columnIndex) throws SQLException;
+
+    @Nullable
+    PhotoUpload.Status getUploadStatus() throws SQLException;
+
+    // Stolujeme streams
+
+    // rows are read lazily as the stream is consumed, closing the stream closes the result
+    @NotNull
+    <T> Stream<T> stream(final @NotNull RowReader<T> reader);
+
+    @FunctionalInterface
+    interface RowReader<T> {
+        @NotNull
+        T read(final @NotNull ResultWrapper result) throws SQLException;
+    }
+}
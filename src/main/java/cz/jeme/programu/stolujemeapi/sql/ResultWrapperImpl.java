@@ -2,6 +2,7 @@ package cz.jeme.programu.stolujemeapi.sql;
 
 import cz.jeme.programu.stolujemeapi.canteen.Canteen;
 import cz.jeme.programu.stolujemeapi.db.meal.Meal;
+import cz.jeme.programu.stolujemeapi.db.photo.PhotoUpload;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -17,12 +18,16 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+// not final, the benchmarks replace single reads and the index tracking in subclasses
 @ApiStatus.Internal
-final class ResultWrapperImpl implements ResultWrapper {
+class ResultWrapperImpl implements ResultWrapper {
     private @Nullable ResultSet result;
-    private final @NotNull Set<Integer> requested = new HashSet<>();
+    private final @NotNull BitSet requested = new BitSet();
     private int next = 1;
 
     @Override
@@ -50,14 +55,13 @@ final class ResultWrapperImpl implements ResultWrapper {
         return this;
     }
 
-    private int index() {
-        while (requested.contains(next)) next++;
-        next++;
-        return next - 1;
+    int index() {
+        next = requested.nextClearBit(next);
+        return next++;
     }
 
-    private void request(final int parameterIndex) {
-        requested.add(parameterIndex);
+    void request(final int parameterIndex) {
+        requested.set(parameterIndex);
     }
 
     @Override
@@ -65,7 +69,7 @@ final class ResultWrapperImpl implements ResultWrapper {
         return result != null;
     }
 
-    private @NotNull ResultSet result() {
+    @NotNull ResultSet result() {
         if (result == null)
             throw new IllegalStateException("Trying to set contents whilst not wrapping anything!");
         return result;
@@ -624,4 +628,43 @@ final class ResultWrapperImpl implements ResultWrapper {
     public @Nullable File getFile() throws SQLException {
         return getFile(index());
     }
+
+    @Override
+    public @Nullable PhotoUpload.Status getUploadStatus(final int columnIndex) throws SQLException {
+        return nullMap(getString(columnIndex), PhotoUpload.Status::valueOf);
+    }
+
+    @Override
+    public @Nullable PhotoUpload.Status getUploadStatus() throws SQLException {
+        return getUploadStatus(index());
+    }
+
+    // Stolujeme streams
+
+    @Override
+    public <T> @NotNull Stream<T> stream(final @NotNull RowReader<T> reader) {
+        result(); // fail fast when not wrapping anything
+        final Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(
+                Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL
+        ) {
+            @Override
+            public boolean tryAdvance(final @NotNull Consumer<? super T> action) {
+                try {
+                    if (!wrapped() || !next()) return false;
+                    action.accept(reader.read(ResultWrapperImpl.this));
+                    return true;
+                } catch (final SQLException e) {
+                    throw new RuntimeException("Could not read row!", e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                if (wrapped()) clear();
+            } catch (final SQLException e) {
+                throw new RuntimeException("Could not close result!", e);
+            }
+        });
+    }
 }
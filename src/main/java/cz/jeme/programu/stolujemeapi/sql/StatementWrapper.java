@@ -2,6 +2,7 @@ package cz.jeme.programu.stolujemeapi.sql;
 
 import cz.jeme.programu.stolujemeapi.canteen.Canteen;
 import cz.jeme.programu.stolujemeapi.db.meal.Meal;
+import cz.jeme.programu.stolujemeapi.db.photo.PhotoUpload;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -330,6 +331,21 @@ public interface StatementWrapper extends WrapperWrapper<StatementWrapper, Prepa
     StatementWrapper setObject(final @NotNull Object object,
                                final @NotNull SQLType targetSqlType) throws SQLException;
 
+    // Delegate options
+
+    // a positive fetch size makes the driver stream the result in chunks of this many rows
+    @NotNull
+    StatementWrapper setFetchSize(final int rows) throws SQLException;
+
+    // Delegate batches
+
+    // adds the current parameters to the batch, the next row is bound from the first parameter again
+    @NotNull
+    StatementWrapper addBatch() throws SQLException;
+
+    @NotNull
+    StatementWrapper clearBatch() throws SQLException;
+
     // Delegate executions
 
     boolean execute() throws SQLException;
@@ -337,6 +353,8 @@ public interface StatementWrapper extends WrapperWrapper<StatementWrapper, Prepa
     @NotNull
     ResultWrapper executeQuery() throws SQLException;
 
+    int @NotNull [] executeBatch() throws SQLException;
+
     long @NotNull [] executeLargeBatch() throws SQLException;
 
     int executeUpdate() throws SQLException;
@@ -449,4 +467,10 @@ public interface StatementWrapper extends WrapperWrapper<StatementWrapper, Prepa
 
     @NotNull
     StatementWrapper setFile(final @NotNull File file) throws SQLException;
+
+    @NotNull
+    StatementWrapper setUploadStatus(final int parameterIndex, final @NotNull PhotoUpload.Status status) throws SQLException;
+
+    @NotNull
+    StatementWrapper setUploadStatus(final @NotNull PhotoUpload.Status status) throws SQLException;
 }
\ No newline at end of file
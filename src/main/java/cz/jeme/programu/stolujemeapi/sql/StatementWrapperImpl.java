@@ -2,6 +2,7 @@ package cz.jeme.programu.stolujemeapi.sql;
 
 import cz.jeme.programu.stolujemeapi.canteen.Canteen;
 import cz.jeme.programu.stolujemeapi.db.meal.Meal;
+import cz.jeme.programu.stolujemeapi.db.photo.PhotoUpload;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -15,16 +16,16 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.BitSet;
 import java.util.Calendar;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.UUID;
 
 @ApiStatus.Internal
 final class StatementWrapperImpl implements StatementWrapper {
     private final @NotNull ResultWrapper resultWrapper = new ResultWrapperImpl();
     private @Nullable PreparedStatement statement;
-    private final @NotNull Set<Integer> occupied = new HashSet<>();
+    // indexes are not boxed, the bit set only allocates when it grows past the highest index used so far
+    private final @NotNull BitSet occupied = new BitSet();
     private int next = 1;
 
     @Override
@@ -53,13 +54,12 @@ final class StatementWrapperImpl implements StatementWrapper {
     }
 
     private int index() {
-        while (occupied.contains(next)) next++;
-        next++;
-        return next - 1;
+        next = occupied.nextClearBit(next);
+        return next++;
     }
 
     private void occupy(final int parameterIndex) {
-        occupied.add(parameterIndex);
+        occupied.set(parameterIndex);
     }
 
     @Override
@@ -671,6 +671,32 @@ final class StatementWrapperImpl implements StatementWrapper {
         return setObject(index(), object, targetSqlType);
     }
 
+    // Delegate options
+
+    @Override
+    public @NotNull StatementWrapper setFetchSize(final int rows) throws SQLException {
+        statement().setFetchSize(rows);
+        return this;
+    }
+
+    // Delegate batches
+
+    @Override
+    public @NotNull StatementWrapper addBatch() throws SQLException {
+        statement().addBatch();
+        occupied.clear();
+        next = 1;
+        return this;
+    }
+
+    @Override
+    public @NotNull StatementWrapper clearBatch() throws SQLException {
+        statement().clearBatch();
+        occupied.clear();
+        next = 1;
+        return this;
+    }
+
     // Delegate executions
 
     @Override
@@ -683,6 +709,11 @@ final class StatementWrapperImpl implements StatementWrapper {
         return resultWrapper.wrap(statement().executeQuery());
     }
 
+    @Override
+    public int @NotNull [] executeBatch() throws SQLException {
+        return statement().executeBatch();
+    }
+
     @Override
     public long @NotNull [] executeLargeBatch() throws SQLException {
         return statement().executeLargeBatch();
@@ -848,6 +879,7 @@ final class StatementWrapperImpl implements StatementWrapper {
 
     @Override
     public @NotNull StatementWrapper setUUID(final int parameterIndex, final @NotNull UUID uuid) throws SQLException {
+        // the text form, binding through the uuid codec of the driver is several times slower, see UuidBenchmark
         return setString(parameterIndex, uuid.toString());
     }
 
@@ -885,4 +917,14 @@ final class StatementWrapperImpl implements StatementWrapper {
     public @NotNull StatementWrapper setFile(final @NotNull File file) throws SQLException {
         return setFile(index(), file);
     }
+
+    @Override
+    public @NotNull StatementWrapper setUploadStatus(final int parameterIndex, final @NotNull PhotoUpload.Status status) throws SQLException {
+        return setString(parameterIndex, status.name());
+    }
+
+    @Override
+    public @NotNull StatementWrapper setUploadStatus(final @NotNull PhotoUpload.Status status) throws SQLException {
+        return setUploadStatus(index(), status);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+-- tables previously created by the data access objects on every start
+
+CREATE TABLE IF NOT EXISTS registrations
+(
+    id_registration MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    creation_time   DATETIME                   NOT NULL,
+    expiration_time DATETIME                   NOT NULL,
+    email           VARCHAR(${EMAIL_LENGTH})   NOT NULL,
+    name            VARCHAR(${NAME_LENGTH})    NOT NULL,
+    canteen         VARCHAR(30)                NOT NULL,
+    password_hash   VARCHAR(${HASH_LENGTH})    NOT NULL,
+    password_salt   VARCHAR(${SALT_LENGTH})    NOT NULL,
+    code            VARCHAR(${CODE_LENGTH})    NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS users
+(
+    id_user         MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    id_registration MEDIUMINT UNSIGNED UNIQUE NOT NULL,
+    FOREIGN KEY (id_registration) REFERENCES registrations (id_registration),
+    email           VARCHAR(${EMAIL_LENGTH})  NOT NULL UNIQUE,
+    name            VARCHAR(${NAME_LENGTH})   NOT NULL UNIQUE,
+    canteen         VARCHAR(30)               NOT NULL,
+    creation_time   DATETIME                  NOT NULL,
+    password_hash   VARCHAR(${HASH_LENGTH})   NOT NULL,
+    password_salt   VARCHAR(${SALT_LENGTH})   NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS sessions
+(
+    id_session      MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    id_user         MEDIUMINT UNSIGNED       NOT NULL,
+    FOREIGN KEY (id_user) REFERENCES users (id_user),
+    creation_time   DATETIME                 NOT NULL,
+    expiration_time DATETIME                 NOT NULL,
+    token           VARCHAR(${TOKEN_LENGTH}) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS meals
+(
+    id_meal     MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    uuid        UUID UNIQUE   NOT NULL,
+    canteen     VARCHAR(30)   NOT NULL,
+    course      VARCHAR(30)   NOT NULL,
+    description VARCHAR(1000) NULL DEFAULT NULL
+);
+
+CREATE TABLE IF NOT EXISTS meal_names
+(
+    id_meal_name MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    id_meal      MEDIUMINT UNSIGNED NOT NULL,
+    FOREIGN KEY (id_meal) REFERENCES meals (id_meal),
+    name         VARCHAR(500)       NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS menu
+(
+    id_menu       MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    id_meal       MEDIUMINT UNSIGNED NOT NULL,
+    FOREIGN KEY (id_meal) REFERENCES meals (id_meal),
+    id_meal_name  MEDIUMINT UNSIGNED NOT NULL,
+    FOREIGN KEY (id_meal_name) REFERENCES meal_names (id_meal_name),
+    uuid          UUID UNIQUE        NOT NULL,
+    date          DATE               NOT NULL,
+    course_number TINYINT            NULL DEFAULT NULL,
+    CHECK (course_number >= 1)
+);
+
+CREATE TABLE IF NOT EXISTS photos
+(
+    id_photo    MEDIUMINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    id_meal     MEDIUMINT UNSIGNED   NOT NULL,
+    FOREIGN KEY (id_meal) REFERENCES meals (id_meal),
+    id_user     MEDIUMINT UNSIGNED   NOT NULL,
+    FOREIGN KEY (id_user) REFERENCES users (id_user),
+    uuid        UUID UNIQUE          NOT NULL,
+    path        VARCHAR(1000) UNIQUE NOT NULL,
+    file_size   BIGINT    UNSIGNED   NOT NULL,
+    upload_time DATETIME             NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS ratings
+(
+    id_rating   INT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    id_meal     MEDIUMINT UNSIGNED NOT NULL,
+    FOREIGN KEY (id_meal) REFERENCES meals (id_meal),
+    id_menu     MEDIUMINT UNSIGNED NOT NULL,
+    FOREIGN KEY (id_menu) REFERENCES menu (id_menu),
+    id_user     MEDIUMINT UNSIGNED NOT NULL,
+    FOREIGN KEY (id_user) REFERENCES users (id_user),
+    UNIQUE KEY (id_menu, id_user),
+    rating      TINYINT UNSIGNED   NOT NULL,
+    CHECK (rating BETWEEN 1 AND 5),
+    rating_time DATETIME           NOT NULL
+);
@@ -0,0 +1,14 @@
+-- menuEntriesByDates, updateMenuDay and the rating aggregates filter menu by date and join on the meal
+CREATE INDEX IF NOT EXISTS menu_date_meal ON menu (date, id_meal);
+
+-- menu entries are filtered by canteen
+CREATE INDEX IF NOT EXISTS meals_canteen ON meals (canteen);
+
+-- covers the per meal rating averages, replaces the implicit foreign key index on id_meal
+CREATE INDEX IF NOT EXISTS ratings_meal_user_rating ON ratings (id_meal, id_user, rating);
+
+-- photosByMealId, replaces the implicit foreign key index on id_meal
+CREATE INDEX IF NOT EXISTS photos_meal ON photos (id_meal);
+
+-- expired session lookups and purges
+CREATE INDEX IF NOT EXISTS sessions_expiration_time ON sessions (expiration_time);
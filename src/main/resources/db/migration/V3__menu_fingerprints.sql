@@ -0,0 +1,9 @@
+-- content fingerprint of the menu of a canteen on a day, the menu job skips days whose fingerprint is unchanged
+CREATE TABLE IF NOT EXISTS menu_fingerprints
+(
+    canteen     VARCHAR(30) NOT NULL,
+    date        DATE        NOT NULL,
+    PRIMARY KEY (canteen, date),
+    fingerprint CHAR(64)    NOT NULL,
+    update_time DATETIME    NOT NULL
+);
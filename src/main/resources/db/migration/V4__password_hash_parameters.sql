@@ -0,0 +1,6 @@
+-- password hashes carry their algorithm and iteration count: algorithm$iterations$key
+ALTER TABLE registrations
+    MODIFY password_hash VARCHAR(${PARAMETERIZED_HASH_LENGTH}) NOT NULL;
+
+ALTER TABLE users
+    MODIFY password_hash VARCHAR(${PARAMETERIZED_HASH_LENGTH}) NOT NULL;
@@ -0,0 +1,2 @@
+-- the sweeper deletes expired registrations by their expiration time
+CREATE INDEX IF NOT EXISTS registrations_expiration_time ON registrations (expiration_time);
@@ -0,0 +1,17 @@
+-- emails waiting to be sent by the email dispatcher, sent and failed emails are kept until the sweeper purges them
+CREATE TABLE IF NOT EXISTS email_outbox
+(
+    id_email          INT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    creation_time     DATETIME                 NOT NULL,
+    recipient         VARCHAR(${EMAIL_LENGTH}) NOT NULL,
+    subject           VARCHAR(200)             NOT NULL,
+    text              TEXT                     NOT NULL,
+    attempts          SMALLINT UNSIGNED        NOT NULL DEFAULT 0,
+    next_attempt_time DATETIME                 NOT NULL,
+    sent_time         DATETIME                 NULL DEFAULT NULL,
+    failed_time       DATETIME                 NULL DEFAULT NULL,
+    last_error        VARCHAR(500)             NULL DEFAULT NULL
+);
+
+-- the dispatcher claims due emails in the order they are due
+CREATE INDEX IF NOT EXISTS email_outbox_pending ON email_outbox (sent_time, failed_time, next_attempt_time);
@@ -0,0 +1,20 @@
+-- photos accepted from clients but not encoded yet, a row is kept after publishing so that clients can poll its status
+CREATE TABLE IF NOT EXISTS photo_uploads
+(
+    id_upload   INT UNSIGNED AUTO_INCREMENT PRIMARY KEY,
+    id_meal     MEDIUMINT UNSIGNED   NOT NULL,
+    FOREIGN KEY (id_meal) REFERENCES meals (id_meal),
+    id_user     MEDIUMINT UNSIGNED   NOT NULL,
+    FOREIGN KEY (id_user) REFERENCES users (id_user),
+    uuid        UUID UNIQUE          NOT NULL,
+    status      VARCHAR(20)          NOT NULL,
+    staged_path VARCHAR(1000) UNIQUE NOT NULL,
+    path        VARCHAR(1000) UNIQUE NOT NULL,
+    upload_time DATETIME             NOT NULL,
+    update_time DATETIME             NOT NULL,
+    error       VARCHAR(500)         NULL DEFAULT NULL
+);
+
+-- the processor resumes pending uploads in upload order, clients list their own pending uploads of a meal
+CREATE INDEX IF NOT EXISTS photo_uploads_status ON photo_uploads (status, upload_time);
+CREATE INDEX IF NOT EXISTS photo_uploads_meal_user ON photo_uploads (id_meal, id_user);
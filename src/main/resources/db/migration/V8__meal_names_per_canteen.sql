@@ -0,0 +1,17 @@
+-- canteens name their dishes independently, the same name in two canteens are two meals
+-- the canteen of a name is its meal's, kept on the name so that it can be unique and looked up together with it
+ALTER TABLE meal_names
+    ADD COLUMN IF NOT EXISTS canteen VARCHAR(30) NULL AFTER id_meal;
+
+UPDATE meal_names, meals
+SET meal_names.canteen = meals.canteen
+WHERE meal_names.id_meal = meals.id_meal;
+
+ALTER TABLE meal_names
+    MODIFY canteen VARCHAR(30) NOT NULL;
+
+-- the unique key created by the baseline for the name alone
+ALTER TABLE meal_names
+    DROP INDEX IF EXISTS name;
+
+CREATE UNIQUE INDEX IF NOT EXISTS meal_names_canteen_name ON meal_names (canteen, name);
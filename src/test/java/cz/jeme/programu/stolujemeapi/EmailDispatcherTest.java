@@ -0,0 +1,102 @@
+package cz.jeme.programu.stolujemeapi;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetup;
+import cz.jeme.programu.stolujemeapi.db.email.EmailDao;
+import cz.jeme.programu.stolujemeapi.db.email.OutboxEmail;
+import cz.jeme.programu.stolujemeapi.db.email.OutboxRow;
+import jakarta.mail.internet.MimeMessage;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the dispatcher against greenmail as a local smtp server, EMAIL_MAX_ATTEMPTS is 2 in the test environment
+class EmailDispatcherTest {
+    private static final int SMTP_PORT = Integer.getInteger("test.smtp.port");
+
+    @RegisterExtension
+    static final @NotNull GreenMailExtension GREEN_MAIL = new GreenMailExtension(
+            new ServerSetup(EmailDispatcherTest.SMTP_PORT, null, ServerSetup.PROTOCOL_SMTP)
+    );
+
+    private final @NotNull EmailDao emailDao = EmailDao.INSTANCE;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.start();
+        TestDatabase.execute("DELETE FROM email_outbox;");
+    }
+
+    private static @NotNull EmailDispatcher dispatcher(final int port) {
+        final JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(port);
+        return new EmailDispatcher(sender);
+    }
+
+    @Test
+    void dispatchSendsAndMarksEmails() throws Exception {
+        final List<OutboxEmail> emails = new ArrayList<>();
+        for (int i = 0; i < 3; i++) emails.add(emailDao.insertEmail(OutboxRow.skeleton("user" + i + "@localhost")));
+
+        final EmailDispatcher dispatcher = EmailDispatcherTest.dispatcher(EmailDispatcherTest.SMTP_PORT);
+        dispatcher.dispatch();
+
+        final MimeMessage[] received = EmailDispatcherTest.GREEN_MAIL.getReceivedMessages();
+        assertEquals(3, received.length);
+        final List<String> recipients = new ArrayList<>();
+        for (final MimeMessage message : received)
+            Arrays.stream(message.getAllRecipients()).map(Object::toString).forEach(recipients::add);
+        assertTrue(recipients.containsAll(List.of("user0@localhost", "user1@localhost", "user2@localhost")));
+        for (final OutboxEmail email : emails) {
+            final OutboxRow row = OutboxRow.of(email.id());
+            assertNotNull(row.sentTime());
+            assertEquals(1, row.attempts());
+        }
+        assertEquals(3, dispatcher.sent());
+
+        // sent emails are not sent again
+        dispatcher.dispatch();
+        assertEquals(3, EmailDispatcherTest.GREEN_MAIL.getReceivedMessages().length);
+    }
+
+    @Test
+    void dispatchRetriesAndGivesUp() {
+        final OutboxEmail email = emailDao.insertEmail(OutboxRow.skeleton("retry@localhost"));
+        // nothing listens on this port
+        final EmailDispatcher dispatcher = EmailDispatcherTest.dispatcher(EmailDispatcherTest.SMTP_PORT + 1);
+        final LocalDateTime start = LocalDateTime.now();
+
+        dispatcher.dispatch();
+
+        final OutboxRow retried = OutboxRow.of(email.id());
+        assertEquals(1, retried.attempts());
+        assertTrue(retried.nextAttemptTime().isAfter(start));
+        assertNotNull(retried.lastError());
+        assertNull(retried.sentTime());
+        assertNull(retried.failedTime());
+
+        // the backoff has not elapsed yet
+        dispatcher.dispatch();
+        assertEquals(1, OutboxRow.of(email.id()).attempts());
+
+        TestDatabase.execute("UPDATE email_outbox SET next_attempt_time = NOW() - INTERVAL 1 SECOND;");
+        dispatcher.dispatch();
+
+        final OutboxRow failed = OutboxRow.of(email.id());
+        assertEquals(2, failed.attempts());
+        assertNotNull(failed.failedTime());
+        assertNull(failed.sentTime());
+        assertEquals(2, dispatcher.failed());
+        assertEquals(0, EmailDispatcherTest.GREEN_MAIL.getReceivedMessages().length);
+    }
+}
@@ -0,0 +1,199 @@
+package cz.jeme.programu.stolujemeapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import cz.jeme.programu.stolujemeapi.canteen.Ceskolipska;
+import cz.jeme.programu.stolujemeapi.canteen.StubCanteen;
+import cz.jeme.programu.stolujemeapi.db.meal.MealDao;
+import cz.jeme.programu.stolujemeapi.db.meal.MenuEntry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the menu job with the http menu source against a stub of the menu api, MENU_API_URL points to it in the test environment
+class MenuJobTest {
+    private static final int DAYS = 5;
+    private static final int MEALS_PER_DAY = 5;
+    // served by every canteen under the same name, every canteen must still get a meal of its own
+    private static final @NotNull String SHARED_DISH = "Svíčková na smetaně";
+    private static final @NotNull ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final @NotNull LocalDate TODAY = LocalDate.now();
+    private static final @NotNull Set<String> REQUESTED = ConcurrentHashMap.newKeySet();
+    private static final @NotNull AtomicBoolean OVERLAPPED = new AtomicBoolean();
+    // every canteen waits for the others, the requests only all arrive if they are made in parallel
+    private static volatile @NotNull CountDownLatch arrivals = new CountDownLatch(0);
+
+    private static HttpServer server;
+    private static ExecutorService serverExecutor;
+
+    private final @NotNull MealDao mealDao = MealDao.INSTANCE;
+
+    @BeforeAll
+    static void setUpAll() throws IOException {
+        TestDatabase.start();
+        if (Canteen.canteens().isEmpty()) Canteen.init();
+        final URI url = MenuJob.URL;
+        MenuJobTest.server = HttpServer.create(new InetSocketAddress("localhost", url.getPort()), 0);
+        MenuJobTest.serverExecutor = Executors.newCachedThreadPool();
+        MenuJobTest.server.setExecutor(MenuJobTest.serverExecutor);
+        MenuJobTest.server.createContext(url.getPath(), MenuJobTest::handle);
+        MenuJobTest.server.start();
+    }
+
+    @AfterAll
+    static void tearDownAll() {
+        MenuJobTest.server.stop(0);
+        MenuJobTest.serverExecutor.shutdownNow();
+    }
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.execute("DELETE FROM menu;");
+        TestDatabase.execute("DELETE FROM menu_fingerprints;");
+        MenuJobTest.REQUESTED.clear();
+        MenuJobTest.OVERLAPPED.set(true);
+    }
+
+    private static void handle(final @NotNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final String number = MenuJobTest.MAPPER.readTree(exchange.getRequestBody()).get("cislo").asText();
+            MenuJobTest.REQUESTED.add(number);
+            final CountDownLatch arrivals = MenuJobTest.arrivals;
+            arrivals.countDown();
+            try {
+                if (!arrivals.await(5, TimeUnit.SECONDS)) MenuJobTest.OVERLAPPED.set(false);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final byte[] body = MenuJobTest.MAPPER.writeValueAsBytes(MenuJobTest.payload(Canteen.fromNumber(number)));
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (final OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+
+    private static @NotNull MenuJob job() {
+        MenuJobTest.arrivals = new CountDownLatch(Canteen.canteens().size());
+        return new MenuJob(new HttpMenuSource(null));
+    }
+
+    @Test
+    void parallelIngestWritesEveryCanteen() {
+        final MenuJob job = MenuJobTest.job();
+        job.run();
+
+        final List<Canteen> canteens = List.copyOf(Canteen.canteens());
+        assertTrue(canteens.contains(Canteen.fromClass(Ceskolipska.class)));
+        assertTrue(canteens.contains(Canteen.fromClass(StubCanteen.class)));
+        assertEquals(canteens.stream().map(Canteen::number).collect(Collectors.toSet()), MenuJobTest.REQUESTED);
+        assertTrue(MenuJobTest.OVERLAPPED.get(), "Canteens were not ingested in parallel");
+
+        for (final Canteen canteen : canteens) {
+            final Map<LocalDate, String> fingerprints = mealDao.menuFingerprints(canteen, MenuJobTest.TODAY.minusDays(7));
+            assertEquals(MenuJobTest.DAYS, fingerprints.size(), canteen.toString());
+            for (int day = 0; day < MenuJobTest.DAYS; day++)
+                assertTrue(fingerprints.containsKey(MenuJobTest.TODAY.plusDays(day)), canteen + " " + MenuJobTest.TODAY.plusDays(day));
+
+            final List<MenuEntry> entries = mealDao.menuEntriesByDates(canteen, MenuJobTest.TODAY.minusDays(7), MenuJobTest.TODAY.plusDays(7));
+            assertEquals(MenuJobTest.DAYS * MenuJobTest.MEALS_PER_DAY, entries.size(), canteen.toString());
+            for (final MenuEntry entry : entries) {
+                assertTrue(entry.mealName().startsWith(canteen.name()) || entry.mealName().equals(MenuJobTest.SHARED_DISH), entry.mealName());
+                assertEquals(canteen, entry.meal().canteen());
+            }
+        }
+        assertEquals((long) MenuJobTest.DAYS * canteens.size(), job.daysChanged());
+        assertEquals(0, job.daysSkipped());
+        assertEquals((long) MenuJobTest.DAYS * MenuJobTest.MEALS_PER_DAY * canteens.size(), job.rowsTouched());
+    }
+
+    @Test
+    void unchangedDaysAreSkipped() {
+        MenuJobTest.job().run();
+        final MenuJob job = MenuJobTest.job();
+        job.run();
+
+        assertEquals((long) MenuJobTest.DAYS * Canteen.canteens().size(), job.daysSkipped());
+        assertEquals(0, job.daysChanged());
+        assertEquals(0, job.rowsTouched());
+    }
+
+    @Test
+    void sharedDishNamesStayWithTheirCanteen() {
+        MenuJobTest.job().run();
+        // every day is written again, the rows already match and must neither be duplicated nor taken by another canteen
+        TestDatabase.execute("DELETE FROM menu_fingerprints;");
+        final MenuJob job = MenuJobTest.job();
+        job.run();
+
+        assertEquals((long) MenuJobTest.DAYS * Canteen.canteens().size(), job.daysChanged());
+        assertEquals(0, job.rowsTouched());
+        final Set<Integer> sharedMeals = new HashSet<>();
+        for (final Canteen canteen : Canteen.canteens()) {
+            final List<MenuEntry> shared = mealDao.menuEntriesByDates(canteen, MenuJobTest.TODAY.minusDays(7), MenuJobTest.TODAY.plusDays(7))
+                    .stream()
+                    .filter(entry -> entry.mealName().equals(MenuJobTest.SHARED_DISH))
+                    .toList();
+            assertEquals(MenuJobTest.DAYS, shared.size(), canteen.toString());
+            for (final MenuEntry entry : shared) assertEquals(canteen, entry.meal().canteen());
+            sharedMeals.add(shared.get(0).meal().id());
+        }
+        assertEquals(Canteen.canteens().size(), sharedMeals.size());
+    }
+
+    // the shape of the menu api: an array holding an object of tables, one table per day
+    // yesterday is included and must be ignored, every day has a placeholder meal without a type that the canteen rejects
+    private static @NotNull ArrayNode payload(final @NotNull Canteen canteen) {
+        final ObjectNode tables = MenuJobTest.MAPPER.createObjectNode();
+        for (int day = -1; day < MenuJobTest.DAYS; day++) {
+            final String date = MenuJob.DATE_FORMATTER.format(MenuJobTest.TODAY.plusDays(day));
+            final ArrayNode meals = tables.putArray("table" + (day + 1));
+            meals.add(MenuJobTest.meal(date, canteen.name() + " polévka " + date, "P"));
+            meals.add(MenuJobTest.meal(date, canteen.name() + " hlavní jídlo 1 " + date, "1"));
+            meals.add(MenuJobTest.meal(date, canteen.name() + " hlavní jídlo 2 " + date, "2"));
+            meals.add(MenuJobTest.meal(date, canteen.name() + " doplněk " + date, "D"));
+            meals.add(MenuJobTest.meal(date, MenuJobTest.SHARED_DISH, "4"));
+            meals.add(MenuJobTest.meal(date, canteen instanceof Ceskolipska ? "Oběd 3" : StubCanteen.PLACEHOLDER, null));
+        }
+        return MenuJobTest.MAPPER.createArrayNode().add(tables);
+    }
+
+    private static @NotNull ObjectNode meal(final @NotNull String date, final @NotNull String name, final @Nullable String type) {
+        final ObjectNode meal = MenuJobTest.MAPPER.createObjectNode()
+                .put("datum", date)
+                .put("nazev", name)
+                .put("cena", 42);
+        if (type != null) meal.put("druh", type);
+        // fields the reader does not use are skipped
+        meal.putArray("alergeny").add("1").add("7");
+        return meal;
+    }
+}
@@ -0,0 +1,70 @@
+package cz.jeme.programu.stolujemeapi;
+
+import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import cz.jeme.programu.stolujemeapi.canteen.StubCanteen;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the captures a replay selects, the menu job captures once a day by default
+class ReplayMenuSourceTest {
+    private static final int DAYS = 21;
+    private static final @NotNull LocalDateTime FIRST_CAPTURE = LocalDateTime.of(2026, 9, 1, 12, 0, 3);
+
+    @TempDir
+    private Path captureDir;
+    private Canteen canteen;
+
+    @BeforeAll
+    static void setUpAll() {
+        if (Canteen.canteens().isEmpty()) Canteen.init();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        canteen = Canteen.fromClass(StubCanteen.class);
+        final Path dir = Files.createDirectories(captureDir.resolve(canteen.number()));
+        for (int day = 0; day < ReplayMenuSourceTest.DAYS; day++)
+            Files.createFile(dir.resolve(ReplayMenuSourceTest.capture(day)));
+        // anything else in the directory is not a capture
+        Files.createFile(dir.resolve("notes.txt"));
+    }
+
+    @Test
+    void everyCaptureWithoutWindow() throws IOException {
+        final List<Path> captures = new ReplayMenuSource(captureDir, null).captures(canteen);
+        assertEquals(ReplayMenuSourceTest.DAYS, captures.size());
+        assertEquals(ReplayMenuSourceTest.capture(0), captures.get(0).getFileName().toString());
+    }
+
+    @Test
+    void windowCountsWeeksBeforeLatestCapture() throws IOException {
+        final List<Path> week = new ReplayMenuSource(captureDir, Period.ofWeeks(1)).captures(canteen);
+        assertEquals(7, week.size());
+        assertEquals(ReplayMenuSourceTest.capture(ReplayMenuSourceTest.DAYS - 7), week.get(0).getFileName().toString());
+        assertEquals(ReplayMenuSourceTest.capture(ReplayMenuSourceTest.DAYS - 1), week.get(6).getFileName().toString());
+
+        assertEquals(14, new ReplayMenuSource(captureDir, Period.ofWeeks(2)).captures(canteen).size());
+        assertEquals(ReplayMenuSourceTest.DAYS, new ReplayMenuSource(captureDir, Period.ofWeeks(10)).captures(canteen).size());
+    }
+
+    @Test
+    void windowMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new ReplayMenuSource(captureDir, Period.ZERO));
+    }
+
+    private static @NotNull String capture(final int day) {
+        return HttpMenuSource.CAPTURE_FORMATTER.format(ReplayMenuSourceTest.FIRST_CAPTURE.plusDays(day)) + ".json";
+    }
+}
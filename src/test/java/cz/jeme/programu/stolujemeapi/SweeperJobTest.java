@@ -0,0 +1,81 @@
+package cz.jeme.programu.stolujemeapi;
+
+import cz.jeme.programu.stolujemeapi.db.photo.PhotoUpload;
+import cz.jeme.programu.stolujemeapi.rest.control.PhotoController;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobExecutionContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+// the staged photo files against the embedded database, PHOTO_DIR points to the build directory in the test environment
+class SweeperJobTest {
+    // older than the default grace of the sweeper
+    private static final @NotNull Duration OLD = Duration.ofDays(2);
+    private static final int ID = 9999;
+
+    private final @NotNull File stagingDir = new File(EnvVar.PHOTO_DIR.require(), PhotoController.STAGING_DIR_NAME);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        TestDatabase.start();
+        TestDatabase.execute("DELETE FROM photo_uploads;");
+        // the other tests share the database, the uploads belong to rows of their own
+        TestDatabase.execute("""
+                INSERT IGNORE INTO registrations (id_registration, creation_time, expiration_time, email, name, canteen, password_hash, password_salt, code)
+                VALUES (%d, NOW(), NOW() + INTERVAL 1 DAY, 'sweeper@email.cz', 'sweeper', 'CESKOLIPSKA', 'hash', 'salt', 'sweeper');
+                """.formatted(SweeperJobTest.ID));
+        TestDatabase.execute("""
+                INSERT IGNORE INTO users (id_user, id_registration, email, name, canteen, creation_time, password_hash, password_salt)
+                VALUES (%d, %d, 'sweeper@email.cz', 'sweeper', 'CESKOLIPSKA', NOW(), 'hash', 'salt');
+                """.formatted(SweeperJobTest.ID, SweeperJobTest.ID));
+        TestDatabase.execute("INSERT IGNORE INTO meals (id_meal, uuid, canteen, course) VALUES (%d, UUID(), 'CESKOLIPSKA', 'MAIN');"
+                .formatted(SweeperJobTest.ID));
+        Files.createDirectories(stagingDir.toPath());
+        final File[] files = stagingDir.listFiles();
+        if (files != null) for (final File file : files) Files.delete(file.toPath());
+    }
+
+    @Test
+    void leftOverStagedFilesAreDeleted() throws IOException {
+        final File pending = stage(SweeperJobTest.OLD);
+        insertUpload(pending, PhotoUpload.Status.PENDING);
+        final File published = stage(SweeperJobTest.OLD);
+        insertUpload(published, PhotoUpload.Status.PUBLISHED);
+        final File failed = stage(SweeperJobTest.OLD);
+        insertUpload(failed, PhotoUpload.Status.FAILED);
+        // the upload crashed before its row was inserted
+        final File orphan = stage(SweeperJobTest.OLD);
+        // the upload may still be inserting its row
+        final File recent = stage(Duration.ZERO);
+
+        new SweeperJob().execute(mock(JobExecutionContext.class));
+
+        assertTrue(pending.exists(), "Pending upload was deleted");
+        assertFalse(published.exists(), "Published upload was kept");
+        assertFalse(failed.exists(), "Failed upload was kept");
+        assertFalse(orphan.exists(), "Orphaned file was kept");
+        assertTrue(recent.exists(), "Recent file was deleted");
+    }
+
+    private @NotNull File stage(final @NotNull Duration age) throws IOException {
+        final File file = Files.createTempFile(stagingDir.toPath(), UUID.randomUUID().toString(), ".upload").toFile();
+        assertTrue(file.setLastModified(System.currentTimeMillis() - age.toMillis()));
+        return file;
+    }
+
+    private void insertUpload(final @NotNull File staged, final @NotNull PhotoUpload.Status status) {
+        TestDatabase.execute("""
+                INSERT INTO photo_uploads (id_meal, id_user, uuid, status, staged_path, path, upload_time, update_time)
+                VALUES (%d, %d, UUID(), '%s', '%s', '%s', NOW(), NOW());
+                """.formatted(SweeperJobTest.ID, SweeperJobTest.ID, status, staged.getAbsolutePath(), staged.getAbsolutePath() + ".avif"));
+    }
+}
@@ -0,0 +1,71 @@
+package cz.jeme.programu.stolujemeapi;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import cz.jeme.programu.stolujemeapi.db.Database;
+import cz.jeme.programu.stolujemeapi.db.Migrator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// embedded mariadb shared by all database tests, started and migrated once per test jvm
+// the port must match DATABASE_URL in the surefire configuration
+public final class TestDatabase {
+    public static final @NotNull String NAME = "stolujeme_test";
+
+    private static @Nullable DB db;
+
+    private TestDatabase() {
+        throw new AssertionError();
+    }
+
+    public static synchronized void start() {
+        if (TestDatabase.db != null) return;
+        try {
+            final DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder()
+                    .setPort(Integer.getInteger("test.database.port"))
+                    // a fresh data directory, nothing is left over from the previous run
+                    .setDataDir(Files.createTempDirectory("stolujeme-test-database").toFile())
+                    .setDeletingTemporaryBaseAndDataDirsOnShutdown(true)
+                    // meal names are czech, like the production server
+                    .setDefaultCharacterSet("utf8mb4");
+            // mariadb refuses to run as root unless told to
+            if (System.getProperty("user.name").equals("root")) config.addArg("--user=root");
+            final DB db = DB.newEmbeddedDB(config.build());
+            db.start();
+            db.createDB(TestDatabase.NAME);
+            TestDatabase.db = db;
+            Runtime.getRuntime().addShutdownHook(new Thread(TestDatabase::stop, "test-database-shutdown"));
+        } catch (final Exception e) {
+            throw new RuntimeException("Could not start test database!", e);
+        }
+        Database.INSTANCE.init();
+        Migrator.INSTANCE.migrate();
+    }
+
+    // forked benchmark jvms may exit without running shutdown hooks, so they stop the database themselves
+    public static synchronized void stop() {
+        if (TestDatabase.db == null) return;
+        Database.INSTANCE.close();
+        try {
+            TestDatabase.db.stop();
+        } catch (final Exception e) {
+            throw new RuntimeException("Could not stop test database!", e);
+        } finally {
+            TestDatabase.db = null;
+        }
+    }
+
+    public static void execute(final @NotNull String sql) {
+        try (final Connection connection = Database.INSTANCE.connection();
+             final Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not execute test statement!", e);
+        }
+    }
+}
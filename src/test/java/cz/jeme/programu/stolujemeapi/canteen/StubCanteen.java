@@ -0,0 +1,36 @@
+package cz.jeme.programu.stolujemeapi.canteen;
+
+import cz.jeme.programu.stolujemeapi.db.meal.Meal;
+import org.jetbrains.annotations.NotNull;
+
+// a second canteen on the test classpath, so the menu job has more than one canteen to ingest in parallel
+public final class StubCanteen extends Canteen {
+    public static final @NotNull String PLACEHOLDER = "Placeholder";
+
+    // reflected
+    private StubCanteen() {
+        super("STUB", "9999");
+    }
+
+    @Override
+    public boolean emailValid(final @NotNull String email) {
+        return email.endsWith("@stub.localhost");
+    }
+
+    @Override
+    public boolean mealValid(final @NotNull MealData meal) {
+        return !meal.name().equals(StubCanteen.PLACEHOLDER);
+    }
+
+    @Override
+    public @NotNull Meal.Course translateCourse(final @NotNull String mealType) {
+        return switch (mealType) {
+            case "P" -> Meal.Course.SOUP;
+            case "D" -> Meal.Course.ADDITION;
+            default -> {
+                Integer.parseInt(mealType);
+                yield Meal.Course.MAIN;
+            }
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package cz.jeme.programu.stolujemeapi.db.email;
+
+import cz.jeme.programu.stolujemeapi.TestDatabase;
+import cz.jeme.programu.stolujemeapi.db.Database;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailDaoTest {
+    private static final @NotNull Duration LEASE = Duration.ofMinutes(5);
+
+    private final @NotNull EmailDao emailDao = EmailDao.INSTANCE;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.start();
+        TestDatabase.execute("DELETE FROM email_outbox;");
+    }
+
+    @Test
+    void claimSkipsRowsLockedByAnotherDispatcher() throws Exception {
+        final OutboxEmail locked = emailDao.insertEmail(OutboxRow.skeleton("locked@localhost"));
+        final OutboxEmail first = emailDao.insertEmail(OutboxRow.skeleton("first@localhost"));
+        final OutboxEmail second = emailDao.insertEmail(OutboxRow.skeleton("second@localhost"));
+
+        try (final Connection connection = Database.INSTANCE.connection()) {
+            connection.setAutoCommit(false);
+            try {
+                // language=mariadb
+                final PreparedStatement lock = connection.prepareStatement("SELECT id_email FROM email_outbox WHERE id_email = ? FOR UPDATE;");
+                lock.setInt(1, locked.id());
+                lock.executeQuery();
+
+                // without skip locked the claim would wait for the lock instead of returning
+                final List<OutboxEmail> claimed = CompletableFuture
+                        .supplyAsync(() -> emailDao.claimEmails(10, EmailDaoTest.LEASE))
+                        .get(10, TimeUnit.SECONDS);
+                assertEquals(List.of(first.id(), second.id()), claimed.stream().map(OutboxEmail::id).toList());
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+
+        final List<OutboxEmail> claimed = emailDao.claimEmails(10, EmailDaoTest.LEASE);
+        assertEquals(List.of(locked.id()), claimed.stream().map(OutboxEmail::id).toList());
+    }
+
+    @Test
+    void claimLeasesEmails() {
+        final OutboxEmail email = emailDao.insertEmail(OutboxRow.skeleton("lease@localhost"));
+        final LocalDateTime before = LocalDateTime.now();
+
+        assertEquals(1, emailDao.claimEmails(10, EmailDaoTest.LEASE).size());
+        // a second dispatcher does not pick the email up while the lease lasts
+        assertTrue(emailDao.claimEmails(10, EmailDaoTest.LEASE).isEmpty());
+        assertFalse(OutboxRow.of(email.id()).nextAttemptTime().isBefore(before.plus(EmailDaoTest.LEASE).minusSeconds(1)));
+    }
+
+    @Test
+    void claimRespectsLimit() {
+        for (int i = 0; i < 5; i++) emailDao.insertEmail(OutboxRow.skeleton(i + "@localhost"));
+
+        assertEquals(3, emailDao.claimEmails(3, EmailDaoTest.LEASE).size());
+        assertEquals(2, emailDao.claimEmails(3, EmailDaoTest.LEASE).size());
+    }
+
+    @Test
+    void markSentCountsTheAttempt() {
+        final OutboxEmail email = emailDao.insertEmail(OutboxRow.skeleton("sent@localhost"));
+
+        emailDao.markSent(emailDao.claimEmails(10, EmailDaoTest.LEASE));
+
+        final OutboxRow row = OutboxRow.of(email.id());
+        assertEquals(1, row.attempts());
+        assertNotNull(row.sentTime());
+        assertNull(row.failedTime());
+    }
+
+    @Test
+    void markFailedSchedulesRetry() {
+        final OutboxEmail email = emailDao.insertEmail(OutboxRow.skeleton("retry@localhost"));
+        final LocalDateTime nextAttemptTime = LocalDateTime.now().plusMinutes(1).withNano(0);
+
+        emailDao.markFailed(email, nextAttemptTime, "connection refused");
+
+        final OutboxRow row = OutboxRow.of(email.id());
+        assertEquals(1, row.attempts());
+        assertEquals(nextAttemptTime, row.nextAttemptTime());
+        assertEquals("connection refused", row.lastError());
+        assertNull(row.sentTime());
+        assertNull(row.failedTime());
+        assertTrue(emailDao.claimEmails(10, EmailDaoTest.LEASE).isEmpty());
+    }
+
+    @Test
+    void markFailedWithoutRetryGivesUp() {
+        final OutboxEmail email = emailDao.insertEmail(OutboxRow.skeleton("failed@localhost"));
+
+        emailDao.markFailed(email, null, "x".repeat(EmailDao.ERROR_LENGTH_MAX + 100));
+
+        final OutboxRow row = OutboxRow.of(email.id());
+        assertNotNull(row.failedTime());
+        assertEquals(EmailDao.ERROR_LENGTH_MAX, row.lastError().length());
+        assertTrue(emailDao.claimEmails(10, EmailDaoTest.LEASE).isEmpty());
+    }
+
+    @Test
+    void deleteFinishedEmailsKeepsPendingOnes() {
+        final OutboxEmail sent = emailDao.insertEmail(OutboxRow.skeleton("sent@localhost"));
+        final OutboxEmail failed = emailDao.insertEmail(OutboxRow.skeleton("failed@localhost"));
+        final OutboxEmail pending = emailDao.insertEmail(OutboxRow.skeleton("pending@localhost"));
+        emailDao.markSent(List.of(sent));
+        emailDao.markFailed(failed, null, "rejected");
+
+        assertEquals(2, emailDao.deleteFinishedEmails(LocalDateTime.now().plusSeconds(1), 10));
+        assertEquals(0, OutboxRow.of(pending.id()).attempts());
+        assertThrows(IllegalArgumentException.class, () -> OutboxRow.of(sent.id()));
+    }
+}
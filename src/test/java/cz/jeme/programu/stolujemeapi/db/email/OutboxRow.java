@@ -0,0 +1,52 @@
+package cz.jeme.programu.stolujemeapi.db.email;
+
+import cz.jeme.programu.stolujemeapi.db.Database;
+import cz.jeme.programu.stolujemeapi.sql.ResultWrapper;
+import cz.jeme.programu.stolujemeapi.sql.StatementWrapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+// the bookkeeping columns of an outbox row, as the dispatcher left them
+public record OutboxRow(
+        int attempts,
+        @NotNull LocalDateTime nextAttemptTime,
+        @Nullable LocalDateTime sentTime,
+        @Nullable LocalDateTime failedTime,
+        @Nullable String lastError
+) {
+    public static @NotNull OutboxRow of(final int id) {
+        try (final Connection connection = Database.INSTANCE.connection()) {
+            // language=mariadb
+            final String statementStr = """
+                    SELECT attempts, next_attempt_time, sent_time, failed_time, last_error
+                    FROM email_outbox
+                    WHERE id_email = ?;
+                    """;
+            final ResultWrapper result = StatementWrapper.wrapper(connection.prepareStatement(statementStr))
+                    .setInt(id)
+                    .executeQuery();
+            if (!result.next()) throw new IllegalArgumentException("No outbox row with id " + id);
+            return new OutboxRow(
+                    result.getInt(),
+                    result.getLocalDateTime(),
+                    result.getLocalDateTime(),
+                    result.getLocalDateTime(),
+                    result.getString()
+            );
+        } catch (final SQLException e) {
+            throw new RuntimeException("Could not read outbox row!", e);
+        }
+    }
+
+    public static @NotNull EmailSkeleton skeleton(final @NotNull String recipient) {
+        return new EmailSkeleton.Builder()
+                .recipient(recipient)
+                .subject("Test")
+                .text("Hello " + recipient)
+                .build();
+    }
+}
@@ -0,0 +1,110 @@
+package cz.jeme.programu.stolujemeapi.db.meal;
+
+import cz.jeme.programu.stolujemeapi.TestDatabase;
+import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import cz.jeme.programu.stolujemeapi.canteen.Ceskolipska;
+import cz.jeme.programu.stolujemeapi.db.rating.RatingDao;
+import cz.jeme.programu.stolujemeapi.db.user.UserDao;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+// the menu of one user for one week against the embedded database, the read model against the five queries it replaced
+// mvn -P benchmark test-compile exec:exec -Dbenchmark=MenuReadModelBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MenuReadModelBenchmark {
+    private static final @NotNull LocalDate FIRST_DAY = LocalDate.of(2026, 10, 5);
+    private static final int WEEKS = 4;
+    private static final int ENTRIES_PER_DAY = 6;
+    private static final int MEALS = 60;
+    private static final int USERS = 50;
+
+    private final @NotNull LocalDate fromDate = MenuReadModelBenchmark.FIRST_DAY.plusWeeks(2);
+    private final @NotNull LocalDate toDate = fromDate.plusDays(4);
+    private final int userId = 1;
+
+    @Setup
+    public void setUp() {
+        TestDatabase.start();
+        if (Canteen.canteens().isEmpty()) Canteen.init();
+        MenuReadModelBenchmark.seed(Canteen.fromClass(Ceskolipska.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        TestDatabase.stop();
+    }
+
+    @Benchmark
+    public @NotNull MenuReadModel.Menu readModel() {
+        return MenuReadModel.INSTANCE.menu(userId, fromDate, toDate);
+    }
+
+    // what the menu endpoint did before the read model, five statements on five connections
+    @Benchmark
+    public void separateQueries(final @NotNull Blackhole blackhole) {
+        blackhole.consume(UserDao.INSTANCE.userById(userId).orElseThrow().canteen());
+        blackhole.consume(RatingDao.INSTANCE.averageRatingsByDates(fromDate, toDate, RatingDao.RatingRequestType.USER, userId));
+        blackhole.consume(RatingDao.INSTANCE.averageRatingsByDates(fromDate, toDate, RatingDao.RatingRequestType.GLOBAL, userId));
+        blackhole.consume(RatingDao.INSTANCE.currentRatingsByDates(fromDate, toDate, userId));
+        blackhole.consume(MealDao.INSTANCE.menuEntriesByDates(Canteen.fromClass(Ceskolipska.class), fromDate, toDate));
+    }
+
+    // a few weeks of menus of one canteen, most entries rated by most users
+    private static void seed(final @NotNull Canteen canteen) {
+        final StringJoiner registrations = new StringJoiner(", ");
+        final StringJoiner users = new StringJoiner(", ");
+        for (int user = 1; user <= MenuReadModelBenchmark.USERS; user++) {
+            registrations.add("(NOW(), NOW() + INTERVAL 1 DAY, 'user%d@email.cz', 'user%d', '%s', 'hash', 'salt', 'code%d')"
+                    .formatted(user, user, canteen.name(), user));
+            users.add("(%d, 'user%d@email.cz', 'user%d', '%s', NOW(), 'hash', 'salt')"
+                    .formatted(user, user, user, canteen.name()));
+        }
+        TestDatabase.execute("""
+                INSERT INTO registrations (creation_time, expiration_time, email, name, canteen, password_hash, password_salt, code)
+                VALUES %s;
+                """.formatted(registrations));
+        TestDatabase.execute("""
+                INSERT INTO users (id_registration, email, name, canteen, creation_time, password_hash, password_salt)
+                VALUES %s;
+                """.formatted(users));
+
+        final StringJoiner meals = new StringJoiner(", ");
+        final StringJoiner mealNames = new StringJoiner(", ");
+        for (int meal = 1; meal <= MenuReadModelBenchmark.MEALS; meal++) {
+            meals.add("(UUID(), '%s', '%s')".formatted(canteen.name(), meal % 6 == 0 ? "SOUP" : "MAIN"));
+            mealNames.add("(%d, '%s', 'Jídlo %d')".formatted(meal, canteen.name(), meal));
+        }
+        TestDatabase.execute("INSERT INTO meals (uuid, canteen, course) VALUES %s;".formatted(meals));
+        TestDatabase.execute("INSERT INTO meal_names (id_meal, canteen, name) VALUES %s;".formatted(mealNames));
+
+        final StringJoiner menu = new StringJoiner(", ");
+        int entry = 0;
+        for (int day = 0; day < MenuReadModelBenchmark.WEEKS * 7; day++) {
+            if (day % 7 >= 5) continue; // no menu on weekends
+            for (int course = 1; course <= MenuReadModelBenchmark.ENTRIES_PER_DAY; course++) {
+                final int meal = entry++ % MenuReadModelBenchmark.MEALS + 1;
+                menu.add("(%d, %d, UUID(), '%s', %d)".formatted(meal, meal, MenuReadModelBenchmark.FIRST_DAY.plusDays(day), course));
+            }
+        }
+        TestDatabase.execute("INSERT INTO menu (id_meal, id_meal_name, uuid, date, course_number) VALUES %s;".formatted(menu));
+        TestDatabase.execute("""
+                INSERT INTO ratings (id_meal, id_menu, id_user, rating, rating_time)
+                SELECT menu.id_meal, menu.id_menu, users.id_user, (menu.id_menu + users.id_user) % 5 + 1, NOW()
+                FROM menu,
+                     users
+                WHERE (menu.id_menu * users.id_user) % 4 <> 0;
+                """);
+        // a freshly filled table has stale statistics, the rating subqueries would not use the hot path index
+        TestDatabase.execute("ANALYZE TABLE registrations, users, meals, meal_names, menu, ratings;");
+    }
+}
@@ -0,0 +1,147 @@
+package cz.jeme.programu.stolujemeapi.rest;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// downloading one photo from an embedded tomcat, the file sender against the input stream resource it replaced
+// the file sender is measured with sendfile and with the transfer to fallback tomcat uses when sendfile is not supported
+// mvn -P benchmark test-compile exec:exec -Dbenchmark="FileSenderBenchmark -prof gc"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileSenderBenchmark {
+    private static final @NotNull MediaType IMAGE_AVIF = MediaType.valueOf("image/avif");
+    private static final @NotNull CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365))
+            .cachePrivate()
+            .immutable();
+
+    // a small variant and a full size photo, in bytes
+    @Param({"16384", "1048576"})
+    private int size;
+
+    private File file;
+    private Tomcat tomcat;
+    private InetSocketAddress address;
+    // the client reads into one buffer and discards it, so the server dominates the measurement
+    private final @NotNull ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    @Setup
+    public void setUp() throws IOException, LifecycleException {
+        file = File.createTempFile("stolujeme-benchmark-photo", ".avif");
+        final byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        Files.write(file.toPath(), bytes);
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("stolujeme-benchmark-tomcat").toString());
+        tomcat.setPort(0);
+        final Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "photo", new PhotoServlet(file)).addMapping("/*");
+        tomcat.getConnector();
+        tomcat.start();
+
+        address = new InetSocketAddress("localhost", tomcat.getConnector().getLocalPort());
+        // the whole file and the headers, the old path also frames the body in chunks
+        for (final String path : new String[]{"/sendfile", "/transfer-to", "/input-stream"}) {
+            final long read = get(path);
+            if (read <= size || read > size * 1.01 + 1024)
+                throw new IllegalStateException("Unexpected response of %d B from %s!".formatted(read, path));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+        file.delete();
+    }
+
+    @Benchmark
+    public long sendfile() throws IOException {
+        return get("/sendfile");
+    }
+
+    @Benchmark
+    public long transferTo() throws IOException {
+        return get("/transfer-to");
+    }
+
+    @Benchmark
+    public long inputStream() throws IOException {
+        return get("/input-stream");
+    }
+
+    // one request per connection, the whole response is read until the server closes it
+    private long get(final @NotNull String path) throws IOException {
+        try (final SocketChannel channel = SocketChannel.open(address)) {
+            channel.write(ByteBuffer.wrap("GET %s HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                    .formatted(path)
+                    .getBytes(StandardCharsets.US_ASCII)));
+            long read = 0;
+            int count;
+            while ((count = channel.read(buffer.clear())) != -1) read += count;
+            return read;
+        }
+    }
+
+    private static final class PhotoServlet extends HttpServlet {
+        private final @NotNull File file;
+
+        private PhotoServlet(final @NotNull File file) {
+            this.file = file;
+        }
+
+        @Override
+        protected void doGet(final @NotNull HttpServletRequest request,
+                             final @NotNull HttpServletResponse response) throws IOException {
+            switch (request.getPathInfo()) {
+                case "/sendfile" -> FileSender.send(request, response, file, FileSenderBenchmark.IMAGE_AVIF, "photo", FileSenderBenchmark.CACHE_CONTROL);
+                case "/transfer-to" -> {
+                    // as over tls, the connector does not offer sendfile
+                    final HttpServletRequest noSendfile = new HttpServletRequestWrapper(request) {
+                        @Override
+                        public Object getAttribute(final @NotNull String name) {
+                            return name.equals("org.apache.tomcat.sendfile.support") ? null : super.getAttribute(name);
+                        }
+                    };
+                    FileSender.send(noSendfile, response, file, FileSenderBenchmark.IMAGE_AVIF, "photo", FileSenderBenchmark.CACHE_CONTROL);
+                }
+                // what the photo endpoint did before the file sender, spring copies the stream through a buffer
+                case "/input-stream" -> {
+                    response.setContentType(FileSenderBenchmark.IMAGE_AVIF.toString());
+                    try (final InputStream input = new InputStreamResource(new FileInputStream(file)).getInputStream()) {
+                        StreamUtils.copy(input, response.getOutputStream());
+                    }
+                }
+                default -> response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package cz.jeme.programu.stolujemeapi.sql;
+
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.RowSetMetaData;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// reading one row through the wrapper with automatic column indexes, the bit set against the hash set of boxed indexes it replaced
+// mvn -P benchmark test-compile exec:exec -Dbenchmark="ResultWrapperBenchmark -prof gc"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResultWrapperBenchmark {
+    private static final int ROWS = 1024;
+
+    // a typical menu entry row is ten columns, the hash set boxes indexes above 127
+    @Param({"10", "200"})
+    private int columns;
+
+    private CachedRowSet rows;
+    private ResultWrapper bitSetWrapper;
+    private ResultWrapper hashSetWrapper;
+
+    @Setup
+    public void setUp() throws SQLException {
+        rows = RowSetProvider.newFactory().createCachedRowSet();
+        final RowSetMetaData metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(columns);
+        for (int column = 1; column <= columns; column++) metaData.setColumnType(column, Types.INTEGER);
+        rows.setMetaData(metaData);
+        rows.moveToInsertRow();
+        for (int row = 0; row < ResultWrapperBenchmark.ROWS; row++) {
+            for (int column = 1; column <= columns; column++) rows.updateInt(column, row + column);
+            rows.insertRow();
+        }
+        rows.moveToCurrentRow();
+        rows.beforeFirst();
+        bitSetWrapper = new ResultWrapperImpl().wrap(rows);
+        hashSetWrapper = new HashSetTracking().wrap(rows);
+    }
+
+    // both variants read the row through the wrapper, only the index tracking differs
+    private int readRow(final @NotNull ResultWrapper wrapper) throws SQLException {
+        if (!wrapper.next()) {
+            rows.beforeFirst();
+            wrapper.next();
+        }
+        int sum = 0;
+        for (int column = 0; column < columns; column++) sum += wrapper.getInt();
+        return sum;
+    }
+
+    @Benchmark
+    public int bitSet() throws SQLException {
+        return readRow(bitSetWrapper);
+    }
+
+    @Benchmark
+    public int hashSet() throws SQLException {
+        return readRow(hashSetWrapper);
+    }
+
+    // the index tracking of the wrapper before the bit set
+    private static final class HashSetTracking extends ResultWrapperImpl {
+        private final @NotNull Set<Integer> requested = new HashSet<>();
+        private int next = 1;
+
+        @Override
+        public boolean next() throws SQLException {
+            final boolean valid = super.next();
+            next = 1;
+            requested.clear();
+            return valid;
+        }
+
+        @Override
+        int index() {
+            while (requested.contains(next)) next++;
+            return next++;
+        }
+
+        @Override
+        void request(final int parameterIndex) {
+            requested.add(parameterIndex);
+        }
+    }
+}
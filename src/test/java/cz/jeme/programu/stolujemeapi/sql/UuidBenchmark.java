@@ -0,0 +1,156 @@
+package cz.jeme.programu.stolujemeapi.sql;
+
+import cz.jeme.programu.stolujemeapi.TestDatabase;
+import cz.jeme.programu.stolujemeapi.canteen.Canteen;
+import cz.jeme.programu.stolujemeapi.db.Database;
+import cz.jeme.programu.stolujemeapi.db.RowMapper;
+import cz.jeme.programu.stolujemeapi.db.meal.MenuEntry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// uuids through the mariadb driver, the uuid codec of the driver against the text form
+// getUUID and setUUID use the text form, the codec is no faster at reading and slower at binding
+// reading is measured as mapping whole menu entry rows, binding without the round trip, lookups with it
+// mvn -P benchmark test-compile exec:exec -Dbenchmark="UuidBenchmark -prof gc"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UuidBenchmark {
+    private static final int ROWS = 1000;
+    private static final @NotNull LocalDate FIRST_DAY = LocalDate.of(2026, 10, 5);
+
+    private final @NotNull RowMapper<MenuEntry> mapper = RowMapper.of(MenuEntry.class);
+    private Connection connection;
+    private ResultSet rows;
+    private ResultWrapper textWrapper;
+    private ResultWrapper codecWrapper;
+    private StatementWrapper bindWrapper;
+    private StatementWrapper lookup;
+    private UUID uuid;
+
+    @Setup
+    public void setUp() throws SQLException {
+        TestDatabase.start();
+        if (Canteen.canteens().isEmpty()) Canteen.init();
+        // every menu entry has a meal of its own, the meals of the fresh database are numbered from one
+        final StringJoiner meals = new StringJoiner(", ");
+        final StringJoiner mealNames = new StringJoiner(", ");
+        final StringJoiner menu = new StringJoiner(", ");
+        for (int meal = 1; meal <= UuidBenchmark.ROWS; meal++) {
+            meals.add("(UUID(), 'CESKOLIPSKA', 'MAIN')");
+            mealNames.add("(%d, 'CESKOLIPSKA', 'Jídlo %d')".formatted(meal, meal));
+            menu.add("(%d, %d, UUID(), '%s', %d)".formatted(meal, meal, UuidBenchmark.FIRST_DAY.plusDays(meal / 6), meal % 6 + 1));
+        }
+        TestDatabase.execute("INSERT INTO meals (uuid, canteen, course) VALUES %s;".formatted(meals));
+        TestDatabase.execute("INSERT INTO meal_names (id_meal, canteen, name) VALUES %s;".formatted(mealNames));
+        TestDatabase.execute("INSERT INTO menu (id_meal, id_meal_name, uuid, date, course_number) VALUES %s;".formatted(menu));
+
+        connection = Database.INSTANCE.connection();
+        // the columns of the menu read of the meal dao
+        // language=mariadb
+        final String statementStr = """
+                SELECT menu.id_menu,
+                       meals.id_meal,
+                       meals.uuid,
+                       meals.course,
+                       meals.canteen,
+                       meals.description,
+                       meal_names.name,
+                       menu.uuid,
+                       menu.date,
+                       menu.course_number
+                FROM menu,
+                     meal_names,
+                     meals
+                WHERE menu.id_meal_name = meal_names.id_meal_name
+                  AND menu.id_meal = meals.id_meal
+                ORDER BY menu.date;
+                """;
+        rows = connection.prepareStatement(statementStr, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                .executeQuery();
+        textWrapper = new ResultWrapperImpl().wrap(rows);
+        codecWrapper = new CodecUuids().wrap(rows);
+        rows.next();
+        uuid = UUID.fromString(rows.getString(3));
+        rows.beforeFirst();
+        // language=mariadb
+        bindWrapper = new StatementWrapperImpl().wrap(connection.prepareStatement("SELECT id_meal FROM meals WHERE uuid = ?;"));
+        // language=mariadb
+        lookup = new StatementWrapperImpl().wrap(connection.prepareStatement("SELECT id_meal FROM meals WHERE uuid = ?;"));
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+        TestDatabase.stop();
+    }
+
+    private void nextRow(final @NotNull ResultWrapper wrapper) throws SQLException {
+        if (!wrapper.next()) {
+            rows.beforeFirst();
+            wrapper.next();
+        }
+    }
+
+    // two uuid columns per row
+    @Benchmark
+    public @NotNull MenuEntry mapCodec() throws SQLException {
+        nextRow(codecWrapper);
+        return mapper.map(codecWrapper);
+    }
+
+    @Benchmark
+    public @NotNull MenuEntry mapText() throws SQLException {
+        nextRow(textWrapper);
+        return mapper.map(textWrapper);
+    }
+
+    @Benchmark
+    public void bindCodec() throws SQLException {
+        bindWrapper.setObject(1, uuid);
+    }
+
+    @Benchmark
+    public void bindText() throws SQLException {
+        bindWrapper.setUUID(1, uuid);
+    }
+
+    @Benchmark
+    public boolean lookupCodec() throws SQLException {
+        return lookup.setObject(1, uuid).executeQuery().next();
+    }
+
+    @Benchmark
+    public boolean lookupText() throws SQLException {
+        return lookup.setUUID(1, uuid).executeQuery().next();
+    }
+
+    // the codec read getUUID used before, binary(16) and text columns were converted here
+    private static final class CodecUuids extends ResultWrapperImpl {
+        @Override
+        public @Nullable UUID getUUID(final int columnIndex) throws SQLException {
+            final Object value = result().getObject(columnIndex);
+            request(columnIndex);
+            if (value == null) return null;
+            if (value instanceof final UUID uuid) return uuid;
+            if (value instanceof final byte[] bytes && bytes.length == 16) {
+                final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                return new UUID(buffer.getLong(), buffer.getLong());
+            }
+            return UUID.fromString(value.toString());
+        }
+    }
+}